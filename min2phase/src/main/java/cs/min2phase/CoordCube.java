@@ -1,5 +1,10 @@
 package cs.min2phase;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
 class CoordCube {
 	static final int N_MOVES = 18;
 	static final int N_MOVES2 = 10;
@@ -12,8 +17,17 @@ class CoordCube {
 	static final int N_PERM = 40320;
 	static final int N_PERM_SYM = 2768;
 	static final int N_MPERM = 24;
-	static final int N_COMB = Search.USE_COMBP_PRUN ? 140 : 70;
-	static final int P2_PARITY_MOVE = Search.USE_COMBP_PRUN ? 0xA5 : 0;
+	static int N_COMB = 140;
+	static int P2_PARITY_MOVE = 0xA5;
+
+	/**
+	 * The profile init() builds the tables for, and the one the flags below describe once it has.
+	 */
+	static Search.TableProfile profile = Search.TableProfile.FAST;
+	static Search.TableProfile builtProfile = null;
+	static boolean USE_TWIST_FLIP_PRUN = true;
+	static boolean USE_COMBP_PRUN = true;
+	static boolean USE_CONJ_PRUN = true;
 
 	//XMove = Move Table
 	//XPrun = Pruning Table
@@ -24,9 +38,9 @@ class CoordCube {
 	static char[][] TwistMove = new char[N_TWIST_SYM][N_MOVES];
 	static char[][] FlipMove = new char[N_FLIP_SYM][N_MOVES];
 	static char[][] UDSliceConj = new char[N_SLICE][8];
-	static int[] UDSliceTwistPrun = new int[N_SLICE * N_TWIST_SYM / 8 + 1];
-	static int[] UDSliceFlipPrun = new int[N_SLICE * N_FLIP_SYM / 8 + 1];
-	static int[] TwistFlipPrun = Search.USE_TWIST_FLIP_PRUN ? new int[N_FLIP * N_TWIST_SYM / 8 + 1] : null;
+	static int[] UDSliceTwistPrun;// = new int[N_SLICE * N_TWIST_SYM / 8 + 1];
+	static int[] UDSliceFlipPrun;// = new int[N_SLICE * N_FLIP_SYM / 8 + 1];
+	static int[] TwistFlipPrun;
 
 	//phase2
 	static char[][] CPermMove = new char[N_PERM_SYM][N_MOVES2];
@@ -34,42 +48,140 @@ class CoordCube {
 	static char[][] MPermMove = new char[N_MPERM][N_MOVES2];
 	static char[][] MPermConj = new char[N_MPERM][16];
 	static char[][] CCombPMove;// = new char[N_COMB][N_MOVES2];
-	static char[][] CCombPConj = new char[N_COMB][16];
-	static int[] MCPermPrun = new int[N_MPERM * N_PERM_SYM / 8 + 1];
-	static int[] EPermCCombPPrun = new int[N_COMB * N_PERM_SYM / 8 + 1];
+	static char[][] CCombPConj;// = new char[N_COMB][16];
+	static int[] MCPermPrun;// = new int[N_MPERM * N_PERM_SYM / 8 + 1];
+	static int[] EPermCCombPPrun;// = new int[N_COMB * N_PERM_SYM / 8 + 1];
 
 	/**
 	 *  0: not initialized, 1: partially initialized, 2: finished
 	 */
-	static int initLevel = 0;
+	static volatile int initLevel = 0;
+
+	/**
+	 * Once the tables are built, this only reads initLevel, whose volatile write publishes them.
+	 */
+	static void init(boolean fullInit) {
+		if (initLevel == 2 || initLevel == 1 && !fullInit) {
+			return;
+		}
+		initTables(fullInit);
+	}
 
-	static synchronized void init(boolean fullInit) {
+	private static synchronized void initTables(boolean fullInit) {
 		if (initLevel == 2 || initLevel == 1 && !fullInit) {
 			return;
 		}
 		if (initLevel == 0) {
-			CubieCube.initPermSym2Raw();
-			initCPermMove();
-			initEPermMove();
-			initMPermMoveConj();
-			initCombPMoveConj();
-
-			CubieCube.initFlipSym2Raw();
-			CubieCube.initTwistSym2Raw();
-			initFlipMove();
-			initTwistMove();
-			initUDSliceMoveConj();
+			if (builtProfile == null) {
+				CubieCube.initPermSym2Raw();
+				initCPermMove();
+				initEPermMove();
+				initMPermMoveConj();
+
+				CubieCube.initFlipSym2Raw();
+				CubieCube.initTwistSym2Raw();
+				initFlipMove();
+				initTwistMove();
+				initUDSliceMoveConj();
+			}
+			initProfile();
+			if (MCPermPrun == null) {
+				UDSliceTwistPrun = new int[N_SLICE * N_TWIST_SYM / 8 + 1];
+				UDSliceFlipPrun = new int[N_SLICE * N_FLIP_SYM / 8 + 1];
+				MCPermPrun = new int[N_MPERM * N_PERM_SYM / 8 + 1];
+			}
 		}
 		initMCPermPrun(fullInit);
 		initPermCombPPrun(fullInit);
 		initSliceTwistPrun(fullInit);
 		initSliceFlipPrun(fullInit);
-		if (Search.USE_TWIST_FLIP_PRUN) {
+		if (USE_TWIST_FLIP_PRUN) {
 			initTwistFlipPrun(fullInit);
 		}
 		initLevel = fullInit ? 2 : 1;
 	}
 
+	/**
+	 * (Re)allocates the tables that differ between the profiles, dropping the ones the profile does without.
+	 */
+	static void initProfile() {
+		boolean fast = profile == Search.TableProfile.FAST;
+		USE_TWIST_FLIP_PRUN = fast;
+		USE_COMBP_PRUN = fast;
+		USE_CONJ_PRUN = fast;
+		N_COMB = USE_COMBP_PRUN ? 140 : 70;
+		P2_PARITY_MOVE = USE_COMBP_PRUN ? 0xA5 : 0;
+
+		TwistFlipPrun = USE_TWIST_FLIP_PRUN ? new int[N_FLIP * N_TWIST_SYM / 8 + 1] : null;
+		CubieCube.initFlipS2RF();
+		CubieCube.initPerm2CombP();
+		initCombPMoveConj();
+		EPermCCombPPrun = new int[N_COMB * N_PERM_SYM / 8 + 1];
+		builtProfile = profile;
+	}
+
+	/**
+	 * Selects the profile the next init() builds the tables for. The tables that differ are rebuilt from scratch, so
+	 * this must not be called while a search is running.
+	 */
+	static synchronized void setProfile(Search.TableProfile profile) {
+		CoordCube.profile = profile;
+		if (builtProfile != null && builtProfile != profile) {
+			initLevel = 0;
+		}
+	}
+
+	/**
+	 * Drops the pruning tables, which the next init() builds again, unless a search is running. initLevel is reset
+	 * before searches is read, and a search is counted before it reads initLevel, so either this sees the search and
+	 * gives up, or the search sees initLevel 0 and waits for this to finish before rebuilding the tables.
+	 *
+	 * @return whether the tables were dropped.
+	 */
+	static synchronized boolean release(AtomicInteger searches) {
+		int level = initLevel;
+		initLevel = 0;
+		if (searches.get() != 0) {
+			initLevel = level;
+			return false;
+		}
+		UDSliceTwistPrun = null;
+		UDSliceFlipPrun = null;
+		TwistFlipPrun = null;
+		MCPermPrun = null;
+		EPermCCombPPrun = null;
+		return true;
+	}
+
+	/**
+	 * @return the number of bytes the elements of the tables take up, without the array headers.
+	 */
+	static synchronized long tableBytes() {
+		return bytes(UDSliceMove) + bytes(TwistMove) + bytes(FlipMove) + bytes(UDSliceConj)
+		       + bytes(UDSliceTwistPrun) + bytes(UDSliceFlipPrun) + bytes(TwistFlipPrun)
+		       + bytes(CPermMove) + bytes(EPermMove) + bytes(MPermMove) + bytes(MPermConj)
+		       + bytes(CCombPMove) + bytes(CCombPConj) + bytes(MCPermPrun) + bytes(EPermCCombPPrun)
+		       + CubieCube.tableBytes();
+	}
+
+	static long bytes(char[][] table) {
+		long bytes = 0;
+		if (table != null) {
+			for (char[] row : table) {
+				bytes += bytes(row);
+			}
+		}
+		return bytes;
+	}
+
+	static long bytes(char[] table) {
+		return table == null ? 0 : table.length * 2L;
+	}
+
+	static long bytes(int[] table) {
+		return table == null ? 0 : table.length * 4L;
+	}
+
 	static void setPruning(int[] table, int index, int value) {
 		table[index >> 3] ^= value << (index << 2); // index << 2 <=> (index & 7) << 2
 	}
@@ -171,6 +283,7 @@ class CoordCube {
 		CubieCube c = new CubieCube();
 		CubieCube d = new CubieCube();
 		CCombPMove = new char[N_COMB][N_MOVES2];
+		CCombPConj = new char[N_COMB][16];
 		for (int i = 0; i < N_COMB; i++) {
 			c.setCComb(i % 70);
 			for (int j = 0; j < N_MOVES2; j++) {
@@ -188,6 +301,29 @@ class CoordCube {
 		return ((val - 0x11111111) & ~val & 0x88888888) != 0;
 	}
 
+	/**
+	 * Whether the pruning tables are built on all available cores. Each depth of the breadth first search is split
+	 * across the threads of the common ForkJoinPool, and the resulting tables are identical to the ones built by a
+	 * single thread.
+	 */
+	static volatile boolean parallelInit = Runtime.getRuntime().availableProcessors() > 1;
+
+	/**
+	 * Sets the pruning value at index to value ^ xorVal, unless another thread changed it from value first.
+	 */
+	static boolean casPruning(AtomicIntegerArray table, int index, int value, int xorVal) {
+		int shift = index << 2 & 0x1f;
+		while (true) {
+			int val = table.get(index >> 3);
+			if ((val >> shift & 0xf) != value) {
+				return false;
+			}
+			if (table.compareAndSet(index >> 3, val, val ^ xorVal << shift)) {
+				return true;
+			}
+		}
+	}
+
 	//          |   4 bits  |   4 bits  |   4 bits  |  2 bits | 1b |  1b |   4 bits  |
 	//PrunFlag: | MIN_DEPTH | MAX_DEPTH | INV_DEPTH | Padding | P2 | E2C | SYM_SHIFT |
 	static void initRawSymPrun(int[] PrunTable,
@@ -195,20 +331,13 @@ class CoordCube {
 	                           final char[][] SymMove, final char[] SymState,
 	                           final int PrunFlag, final boolean fullInit) {
 
-		final int SYM_SHIFT = PrunFlag & 0xf;
-		final int SYM_E2C_MAGIC = ((PrunFlag >> 4) & 1) == 1 ? CubieCube.SYM_E2C_MAGIC : 0x00000000;
-		final boolean IS_PHASE2 = ((PrunFlag >> 5) & 1) == 1;
 		final int INV_DEPTH = PrunFlag >> 8 & 0xf;
 		final int MAX_DEPTH = PrunFlag >> 12 & 0xf;
 		final int MIN_DEPTH = PrunFlag >> 16 & 0xf;
 		final int SEARCH_DEPTH = fullInit ? MAX_DEPTH : MIN_DEPTH;
 
-		final int SYM_MASK = (1 << SYM_SHIFT) - 1;
-		final boolean ISTFP = RawMove == null;
-		final int N_RAW = ISTFP ? N_FLIP : RawMove.length;
-		final int N_SIZE = N_RAW * SymMove.length;
-		final int N_MOVES = IS_PHASE2 ? 10 : 18;
-		final int NEXT_AXIS_MAGIC = N_MOVES == 10 ? 0x42 : 0x92492;
+		final RawSymPrunLayer layer = new RawSymPrunLayer(PrunTable, RawMove, RawConj, SymMove, SymState, PrunFlag);
+		final int N_SIZE = layer.N_SIZE;
 
 		int depth = getPruning(PrunTable, N_SIZE) - 1;
 		int done = 0;
@@ -224,24 +353,130 @@ class CoordCube {
 			done = 1;
 		}
 
+		// A parallel build works on one atomic copy of the table from the first depth to the last.
+		AtomicIntegerArray table = parallelInit && depth < SEARCH_DEPTH ? new AtomicIntegerArray(PrunTable) : null;
 		while (depth < SEARCH_DEPTH) {
 			int mask = (depth + 1) * 0x11111111 ^ 0xffffffff;
 			for (int i = 0; i < PrunTable.length; i++) {
-				int val = PrunTable[i] ^ mask;
+				int val = (table != null ? table.get(i) : PrunTable[i]) ^ mask;
 				val &= val >> 1;
-				PrunTable[i] += val & (val >> 2) & 0x11111111;
+				val &= (val >> 2) & 0x11111111;
+				if (table != null) {
+					table.set(i, table.get(i) + val);
+				} else {
+					PrunTable[i] += val;
+				}
 			}
 
-			boolean inv = depth > INV_DEPTH;
-			int select = inv ? (depth + 2) : depth;
-			int selArrMask = select * 0x11111111;
-			int check = inv ? depth : (depth + 2);
+			layer.setDepth(depth, depth > INV_DEPTH, table);
 			depth++;
-			int xorVal = depth ^ (depth + 1);
+			if (table != null) {
+				done += ForkJoinPool.commonPool().invoke(new RawSymPrunScan(layer, 0, N_SIZE));
+			} else {
+				done += layer.scan(0, N_SIZE);
+			}
+			// System.out.println(String.format("%2d%10d%10f", depth, done, (System.nanoTime() - tt) / 1e6d));
+		}
+		if (table != null) {
+			for (int i = 0; i < PrunTable.length; i++) {
+				PrunTable[i] = table.get(i);
+			}
+		}
+	}
+
+	/**
+	 * One depth of the breadth first search behind initRawSymPrun. Either every entry at the current depth marks its
+	 * unvisited neighbours (forward), or every unvisited entry looks for a neighbour at the current depth (inverse).
+	 * Either way the entries of the next depth do not depend on the order they are found in, so scan can run on
+	 * disjoint ranges of the table at the same time, as long as they share a copy of the table in an
+	 * AtomicIntegerArray, so that the entries are updated atomically.
+	 */
+	static final class RawSymPrunLayer {
+		final int[] PrunTable;
+		final char[][] RawMove;
+		final char[][] RawConj;
+		final char[][] SymMove;
+		final char[] SymState;
+
+		final int SYM_SHIFT;
+		final int SYM_E2C_MAGIC;
+		final int SYM_MASK;
+		final boolean ISTFP;
+		final int N_RAW;
+		final int N_SIZE;
+		final int N_MOVES;
+		final int NEXT_AXIS_MAGIC;
+
+		boolean inv;
+		int select;
+		int selArrMask;
+		int check;
+		int depth;
+		int xorVal;
+		AtomicIntegerArray concurrent;
+
+		RawSymPrunLayer(int[] PrunTable, char[][] RawMove, char[][] RawConj, char[][] SymMove, char[] SymState, int PrunFlag) {
+			this.PrunTable = PrunTable;
+			this.RawMove = RawMove;
+			this.RawConj = RawConj;
+			this.SymMove = SymMove;
+			this.SymState = SymState;
+
+			SYM_SHIFT = PrunFlag & 0xf;
+			SYM_E2C_MAGIC = ((PrunFlag >> 4) & 1) == 1 ? CubieCube.SYM_E2C_MAGIC : 0x00000000;
+			boolean IS_PHASE2 = ((PrunFlag >> 5) & 1) == 1;
+			SYM_MASK = (1 << SYM_SHIFT) - 1;
+			ISTFP = RawMove == null;
+			N_RAW = ISTFP ? N_FLIP : RawMove.length;
+			N_SIZE = N_RAW * SymMove.length;
+			N_MOVES = IS_PHASE2 ? 10 : 18;
+			NEXT_AXIS_MAGIC = N_MOVES == 10 ? 0x42 : 0x92492;
+		}
+
+		/**
+		 * Prepares a scan for the entries at depth + 1.
+		 *
+		 * @param concurrent the copy of the table shared by the threads of a parallel build, or null.
+		 */
+		void setDepth(int depth, boolean inv, AtomicIntegerArray concurrent) {
+			this.inv = inv;
+			this.select = inv ? (depth + 2) : depth;
+			this.selArrMask = select * 0x11111111;
+			this.check = inv ? depth : (depth + 2);
+			this.depth = depth + 1;
+			this.xorVal = this.depth ^ (this.depth + 1);
+			this.concurrent = concurrent;
+		}
+
+		/**
+		 * Moves the entry at idx from its current value to the new depth.
+		 */
+		private boolean mark(int idx, int value) {
+			if (concurrent != null) {
+				return casPruning(concurrent, idx, value, xorVal);
+			}
+			setPruning(PrunTable, idx, xorVal);
+			return true;
+		}
+
+		private int getWord(int i) {
+			return concurrent != null ? concurrent.get(i) : PrunTable[i];
+		}
+
+		private int getPruning(int idx) {
+			return getWord(idx >> 3) >> (idx << 2 & 0x1f) & 0xf;
+		}
+
+		/**
+		 * @param start a multiple of 8
+		 * @return the number of entries found at the new depth
+		 */
+		int scan(int start, int end) {
+			int done = 0;
 			int val = 0;
-			for (int i = 0; i < N_SIZE; i++, val >>= 4) {
+			for (int i = start; i < end; i++, val >>= 4) {
 				if ((i & 7) == 0) {
-					val = PrunTable[i >> 3];
+					val = getWord(i >> 3);
 					if (!hasZero(val ^ selArrMask)) {
 						i += 7;
 						continue;
@@ -272,19 +507,22 @@ class CoordCube {
 					}
 					symx >>= SYM_SHIFT;
 					int idx = symx * N_RAW + rawx;
-					int prun = getPruning(PrunTable, idx);
+					int prun = getPruning(idx);
 					if (prun != check) {
 						if (prun < depth - 1) {
 							m += NEXT_AXIS_MAGIC >> m & 3;
 						}
 						continue;
 					}
-					done++;
 					if (inv) {
-						setPruning(PrunTable, i, xorVal);
+						if (mark(i, select)) {
+							done++;
+						}
 						break;
 					}
-					setPruning(PrunTable, idx, xorVal);
+					if (mark(idx, check)) {
+						done++;
+					}
 					for (int j = 1, symState = SymState[symx]; (symState >>= 1) != 0; j++) {
 						if ((symState & 1) != 1) {
 							continue;
@@ -295,14 +533,42 @@ class CoordCube {
 						} else {
 							idxx += RawConj[rawx][j ^ (SYM_E2C_MAGIC >> (j << 1) & 3)];
 						}
-						if (getPruning(PrunTable, idxx) == check) {
-							setPruning(PrunTable, idxx, xorVal);
+						if (getPruning(idxx) == check && mark(idxx, check)) {
 							done++;
 						}
 					}
 				}
 			}
-			// System.out.println(String.format("%2d%10d%10f", depth, done, (System.nanoTime() - tt) / 1e6d));
+			return done;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static final class RawSymPrunScan extends RecursiveTask<Integer> {
+		static final int THRESHOLD = 1 << 13;
+
+		final RawSymPrunLayer layer;
+		final int start;
+		final int end;
+
+		RawSymPrunScan(RawSymPrunLayer layer, int start, int end) {
+			this.layer = layer;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (end - start <= THRESHOLD) {
+				return layer.scan(start, end);
+			}
+			// Splitting on a multiple of 8 keeps each int of the table, and the skipping of the ones without any
+			// entry to select, within a single range.
+			int mid = (start + end) >>> 1 & ~7;
+			RawSymPrunScan left = new RawSymPrunScan(layer, start, mid);
+			left.fork();
+			int done = new RawSymPrunScan(layer, mid, end).compute();
+			return done + left.join();
 		}
 	}
 
@@ -362,6 +628,10 @@ class CoordCube {
 	int twistc;
 	int flipc;
 
+	//raw coordinates for OptPrun
+	int flipr;
+	int twistr;
+
 	CoordCube() { }
 
 	void set(CoordCube node) {
@@ -372,10 +642,12 @@ class CoordCube {
 		this.slice = node.slice;
 		this.prun = node.prun;
 
-		if (Search.USE_CONJ_PRUN) {
+		if (USE_CONJ_PRUN) {
 			this.twistc = node.twistc;
 			this.flipc = node.flipc;
 		}
+		this.flipr = node.flipr;
+		this.twistr = node.twistr;
 	}
 
 	void calcPruning(boolean isPhase1) {
@@ -386,9 +658,9 @@ class CoordCube {
 		               getPruning(UDSliceFlipPrun,
 		                          flip * N_SLICE + UDSliceConj[slice][fsym])),
 		           Math.max(
-		               Search.USE_CONJ_PRUN ? getPruning(TwistFlipPrun,
+		               USE_CONJ_PRUN ? getPruning(TwistFlipPrun,
 		                       (twistc >> 3) << 11 | CubieCube.FlipS2RF[flipc ^ (twistc & 7)]) : 0,
-		               Search.USE_TWIST_FLIP_PRUN ? getPruning(TwistFlipPrun,
+		               USE_TWIST_FLIP_PRUN ? getPruning(TwistFlipPrun,
 		                       twist << 11 | CubieCube.FlipS2RF[flip << 3 | (fsym ^ tsym)]) : 0));
 	}
 
@@ -398,7 +670,7 @@ class CoordCube {
 		tsym = twist & 7;
 		twist = twist >> 3;
 
-		prun = Search.USE_TWIST_FLIP_PRUN ? getPruning(TwistFlipPrun,
+		prun = USE_TWIST_FLIP_PRUN ? getPruning(TwistFlipPrun,
 		        twist << 11 | CubieCube.FlipS2RF[flip ^ tsym]) : 0;
 		if (prun > depth) {
 			return false;
@@ -417,7 +689,7 @@ class CoordCube {
 			return false;
 		}
 
-		if (Search.USE_CONJ_PRUN) {
+		if (USE_CONJ_PRUN) {
 			CubieCube pc = new CubieCube();
 			CubieCube.CornConjugate(cc, 1, pc);
 			CubieCube.EdgeConjugate(cc, 1, pc);
@@ -451,11 +723,32 @@ class CoordCube {
 		                          twist * N_SLICE + UDSliceConj[slice][tsym]),
 		               getPruning(UDSliceFlipPrun,
 		                          flip * N_SLICE + UDSliceConj[slice][fsym])),
-		           Search.USE_TWIST_FLIP_PRUN ? getPruning(TwistFlipPrun,
+		           USE_TWIST_FLIP_PRUN ? getPruning(TwistFlipPrun,
 		                   twist << 11 | CubieCube.FlipS2RF[flip << 3 | (fsym ^ tsym)]) : 0);
 		return prun;
 	}
 
+	/**
+	 * Sets the exact phase 1 distance of the optimal pruning table, which makes the other pruning values redundant.
+	 */
+	void setWithOptPrun(CubieCube cc) {
+		slice = cc.getUDSlice();
+		flipr = cc.getFlip();
+		twistr = cc.getTwist();
+		prun = OptPrun.getDepth(slice, flipr, twistr);
+	}
+
+	/**
+	 * @return the exact phase 1 distance, given that of cc.
+	 */
+	int doMovePrunOpt(CoordCube cc, int m) {
+		slice = UDSliceMove[cc.slice][m];
+		flipr = OptPrun.FlipMove[cc.flipr][m];
+		twistr = OptPrun.TwistMove[cc.twistr][m];
+		prun = OptPrun.getDepth(cc.prun, slice, flipr, twistr);
+		return prun;
+	}
+
 	int doMovePrunConj(CoordCube cc, int m) {
 		m = CubieCube.SymMove[3][m];
 		flipc = FlipMove[cc.flipc >> 3][CubieCube.Sym8Move[m << 3 | cc.flipc & 7]] ^ (cc.flipc & 7);
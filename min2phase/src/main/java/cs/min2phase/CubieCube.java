@@ -51,7 +51,7 @@ public class CubieCube {
 	static char[] FlipR2S = new char[CoordCube.N_FLIP];
 	static char[] TwistR2S = new char[CoordCube.N_TWIST];
 	static char[] EPermR2S = new char[CoordCube.N_PERM];
-	static char[] FlipS2RF = Search.USE_TWIST_FLIP_PRUN ? new char[CoordCube.N_FLIP_SYM * 8] : null;
+	static char[] FlipS2RF;// = new char[CoordCube.N_FLIP_SYM * 8];
 
 	/**
 	 *
@@ -504,9 +504,6 @@ public class CubieCube {
 				case 2: idx = d.getEPerm();
 					break;
 				}
-				if (coord == 0 && Search.USE_TWIST_FLIP_PRUN) {
-					FlipS2RF[count << 3 | s >> 1] = (char) idx;
-				}
 				if (idx == i) {
 					SymState[count] |= 1 << (s / sym_inc);
 				}
@@ -534,7 +531,6 @@ public class CubieCube {
 		CubieCube cc = new CubieCube();
 		for (int i = 0; i < CoordCube.N_PERM_SYM; i++) {
 			cc.setEPerm(EPermS2R[i]);
-			Perm2CombP[i] = (byte) (Util.getComb(cc.ea, 0, true) + (Search.USE_COMBP_PRUN ? Util.getNParity(EPermS2R[i], 8) * 70 : 0));
 			cc.invCubieCube();
 			PermInvEdgeSym[i] = (char) cc.getEPermSym();
 		}
@@ -545,6 +541,43 @@ public class CubieCube {
 		}
 	}
 
+	/**
+	 * FlipS2RF[flip << 3 | sym] is the raw flip of the sym-th conjugate of the flip representant, which is needed for
+	 * the TwistFlipPrun table only.
+	 */
+	static void initFlipS2RF() {
+		if (!CoordCube.USE_TWIST_FLIP_PRUN) {
+			FlipS2RF = null;
+			return;
+		}
+		FlipS2RF = new char[CoordCube.N_FLIP_SYM * 8];
+		CubieCube c = new CubieCube();
+		CubieCube d = new CubieCube();
+		for (int i = 0; i < CoordCube.N_FLIP_SYM; i++) {
+			c.setFlip(FlipS2R[i]);
+			for (int s = 0; s < 16; s += 2) {
+				EdgeConjugate(c, s, d);
+				FlipS2RF[i << 3 | s >> 1] = (char) d.getFlip();
+			}
+		}
+	}
+
+	static void initPerm2CombP() {
+		CubieCube cc = new CubieCube();
+		for (int i = 0; i < CoordCube.N_PERM_SYM; i++) {
+			cc.setEPerm(EPermS2R[i]);
+			Perm2CombP[i] = (byte) (Util.getComb(cc.ea, 0, true) + (CoordCube.USE_COMBP_PRUN ? Util.getNParity(EPermS2R[i], 8) * 70 : 0));
+		}
+	}
+
+	static long tableBytes() {
+		return CoordCube.bytes(FlipS2R) + CoordCube.bytes(TwistS2R) + CoordCube.bytes(EPermS2R)
+		       + CoordCube.bytes(FlipR2S) + CoordCube.bytes(TwistR2S) + CoordCube.bytes(EPermR2S)
+		       + CoordCube.bytes(FlipS2RF) + CoordCube.bytes(SymStateTwist) + CoordCube.bytes(SymStateFlip)
+		       + CoordCube.bytes(SymStatePerm) + CoordCube.bytes(PermInvEdgeSym)
+		       + Perm2CombP.length + MPermInv.length;
+	}
+
 	static {
 		CubieCube.initMove();
 		CubieCube.initSym();
@@ -0,0 +1,303 @@
+package cs.min2phase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruning table on the whole phase 1 coordinate, (UDSlice, Flip, Twist), for the optimal search.<br>
+ * UDSlice and Flip are combined and reduced by the 8 symmetries that keep the UD axis, and each entry keeps the
+ * distance to phase 2 modulo 3 in 2 bits, which is about 70MB. The exact distance is recovered at the root
+ * and then tracked along the search path, as the distances of neighbouring cubes differ by at most 1.
+ */
+class OptPrun {
+	static final int N_FLIPSLICE = CoordCube.N_SLICE * CoordCube.N_FLIP;
+	static final int N_FLIPSLICE_SYM = 128688;
+	static final int N_SIZE = N_FLIPSLICE_SYM * CoordCube.N_TWIST;
+
+	/**
+	 * Whether the optimal search should use the table, see Search.setOptimalTable(...).
+	 */
+	static volatile boolean enabled = false;
+	static volatile boolean inited = false;
+
+	static char[][] SliceConj;
+	static char[][] FlipMove;
+	static char[][] FlipConj;
+	static char[][] TwistMove;
+	static char[][] TwistConj;
+
+	/**
+	 * FlipSliceR2S[slice << 11 | flip] = sym << 3 | k, where the k-th symmetry takes the cube to the representant
+	 * FlipSliceS2R[sym].
+	 */
+	static int[] FlipSliceR2S;
+	static int[] FlipSliceS2R;
+	static char[] SymStateFlipSlice;
+	static int SOLVED_SLICE;
+
+	static int[] Prun;
+
+	static void init() {
+		if (!inited) {
+			initTables();
+		}
+	}
+
+	private static synchronized void initTables() {
+		if (inited) {
+			return;
+		}
+		initCoords();
+		if (Prun == null) {
+			initPrun();
+		}
+		inited = true;
+	}
+
+	/**
+	 * Drops the table and the coordinates it is indexed by, like CoordCube.release(searches). They are built again
+	 * by the next optimal search, even if they were loaded by Tools.initOptimalTable(...).
+	 */
+	static synchronized boolean release(AtomicInteger searches) {
+		boolean wasInited = inited;
+		inited = false;
+		if (searches.get() != 0) {
+			inited = wasInited;
+			return false;
+		}
+		Prun = null;
+		SliceConj = null;
+		FlipMove = null;
+		FlipConj = null;
+		TwistMove = null;
+		TwistConj = null;
+		FlipSliceR2S = null;
+		FlipSliceS2R = null;
+		SymStateFlipSlice = null;
+		return true;
+	}
+
+	static synchronized long tableBytes() {
+		return CoordCube.bytes(Prun) + CoordCube.bytes(SliceConj) + CoordCube.bytes(FlipMove)
+		       + CoordCube.bytes(FlipConj) + CoordCube.bytes(TwistMove) + CoordCube.bytes(TwistConj)
+		       + CoordCube.bytes(FlipSliceR2S) + CoordCube.bytes(FlipSliceS2R) + CoordCube.bytes(SymStateFlipSlice);
+	}
+
+	static void initCoords() {
+		if (FlipSliceR2S != null) {
+			return;
+		}
+		CoordCube.init(false);
+		SOLVED_SLICE = new CubieCube().getUDSlice();
+
+		CubieCube c = new CubieCube();
+		CubieCube d = new CubieCube();
+		SliceConj = new char[CoordCube.N_SLICE][8];
+		for (int i = 0; i < CoordCube.N_SLICE; i++) {
+			c.setUDSlice(i);
+			for (int k = 0; k < 8; k++) {
+				CubieCube.EdgeConjugate(c, k << 1, d);
+				SliceConj[i][k] = (char) d.getUDSlice();
+			}
+		}
+		c = new CubieCube();
+		FlipMove = new char[CoordCube.N_FLIP][CoordCube.N_MOVES];
+		FlipConj = new char[CoordCube.N_FLIP][8];
+		for (int i = 0; i < CoordCube.N_FLIP; i++) {
+			c.setFlip(i);
+			for (int m = 0; m < CoordCube.N_MOVES; m++) {
+				CubieCube.EdgeMult(c, CubieCube.moveCube[m], d);
+				FlipMove[i][m] = (char) d.getFlip();
+			}
+			for (int k = 0; k < 8; k++) {
+				CubieCube.EdgeConjugate(c, k << 1, d);
+				FlipConj[i][k] = (char) d.getFlip();
+			}
+		}
+		TwistMove = new char[CoordCube.N_TWIST][CoordCube.N_MOVES];
+		TwistConj = new char[CoordCube.N_TWIST][8];
+		for (int i = 0; i < CoordCube.N_TWIST; i++) {
+			c.setTwist(i);
+			for (int m = 0; m < CoordCube.N_MOVES; m++) {
+				CubieCube.CornMult(c, CubieCube.moveCube[m], d);
+				TwistMove[i][m] = (char) d.getTwist();
+			}
+			for (int k = 0; k < 8; k++) {
+				CubieCube.CornConjugate(c, k << 1, d);
+				TwistConj[i][k] = (char) d.getTwist();
+			}
+		}
+
+		int[] R2S = new int[N_FLIPSLICE];
+		int[] S2R = new int[N_FLIPSLICE_SYM];
+		char[] SymState = new char[N_FLIPSLICE_SYM];
+		Arrays.fill(R2S, -1);
+		int count = 0;
+		for (int i = 0; i < N_FLIPSLICE; i++) {
+			if (R2S[i] != -1) {
+				continue;
+			}
+			int slice = i >> 11;
+			int flip = i & 0x7ff;
+			for (int k = 0; k < 8; k++) {
+				int idx = SliceConj[slice][k] << 11 | FlipConj[flip][k];
+				if (idx == i) {
+					SymState[count] |= 1 << k;
+				}
+				R2S[idx] = count << 3 | CubieCube.SymMultInv[0][k << 1] >> 1;
+			}
+			S2R[count++] = i;
+		}
+		assert count == N_FLIPSLICE_SYM;
+		FlipSliceS2R = S2R;
+		SymStateFlipSlice = SymState;
+		FlipSliceR2S = R2S;
+	}
+
+	static int getIndex(int slice, int flip, int twist) {
+		int fs = FlipSliceR2S[slice << 11 | flip];
+		return (fs >> 3) * CoordCube.N_TWIST + TwistConj[twist][fs & 7];
+	}
+
+	static int getPruning(int[] table, int index) {
+		return table[index >> 4] >> (index << 1) & 3; // index << 1 <=> (index & 15) << 1
+	}
+
+	/**
+	 * Only for entries that are still unvisited, i.e. 3.
+	 */
+	static void setPruning(int[] table, int index, int value) {
+		table[index >> 4] ^= (3 ^ value) << (index << 1);
+	}
+
+	/**
+	 * @return the distance of (slice, flip, twist), given that a neighbour is depth moves away from phase 2.
+	 */
+	static int getDepth(int depth, int slice, int flip, int twist) {
+		int prun = getPruning(Prun, getIndex(slice, flip, twist));
+		return depth + (prun - depth % 3 + 4) % 3 - 1;
+	}
+
+	/**
+	 * @return the distance of (slice, flip, twist), found by walking down to phase 2.
+	 */
+	static int getDepth(int slice, int flip, int twist) {
+		int depth = 0;
+		int prun = getPruning(Prun, getIndex(slice, flip, twist));
+		while (slice != SOLVED_SLICE || flip != 0 || twist != 0) {
+			int target = (prun + 2) % 3;
+			for (int m = 0; m < CoordCube.N_MOVES; m++) {
+				int slicex = CoordCube.UDSliceMove[slice][m];
+				int flipx = FlipMove[flip][m];
+				int twistx = TwistMove[twist][m];
+				int prunx = getPruning(Prun, getIndex(slicex, flipx, twistx));
+				if (prunx == target) {
+					slice = slicex;
+					flip = flipx;
+					twist = twistx;
+					prun = prunx;
+					break;
+				}
+			}
+			depth++;
+		}
+		return depth;
+	}
+
+	static void initPrun() {
+		final int N_TWIST = CoordCube.N_TWIST;
+		int[] table = new int[N_SIZE / 16 + 1];
+		Arrays.fill(table, -1);
+		setPruning(table, getIndex(SOLVED_SLICE, 0, 0), 0);
+		long done = 1;
+		long layer = 1;
+		// selected[d % 3]: the entries that are d, d - 3, d - 6, ... moves away. Only the ones at d have unvisited
+		// neighbours, but a forward scan cannot tell them from the others, so it has to expand all of them.
+		long[] selected = {1, 0, 0};
+
+		// long tt = System.nanoTime();
+
+		for (int depth = 0; done < N_SIZE; depth++) {
+			boolean inv = selected[depth % 3] > N_SIZE - done;
+			int select = depth % 3;
+			int next = (depth + 1) % 3;
+			int check = inv ? 3 : select;
+			int pattern = check * 0x55555555;
+			layer = 0;
+			for (int w = 0; w < table.length; w++) {
+				int val = table[w];
+				int x = val ^ pattern;
+				if (((x | x >> 1) & 0x55555555) == 0x55555555) {
+					continue;
+				}
+				for (int i = w << 4, end = Math.min(i + 16, N_SIZE); i < end; i++, x >>= 2) {
+					if ((x & 3) != 0) {
+						continue;
+					}
+					int sym = i / N_TWIST;
+					int twist = i % N_TWIST;
+					int fs = FlipSliceS2R[sym];
+					int slice = fs >> 11;
+					int flip = fs & 0x7ff;
+					for (int m = 0; m < CoordCube.N_MOVES; m++) {
+						int fsx = FlipSliceR2S[CoordCube.UDSliceMove[slice][m] << 11 | FlipMove[flip][m]];
+						int symx = fsx >> 3;
+						int twistx = TwistConj[TwistMove[twist][m]][fsx & 7];
+						int idx = symx * N_TWIST + twistx;
+						int prun = getPruning(table, idx);
+						if (inv) {
+							if (prun == select) {
+								setPruning(table, i, next);
+								layer++;
+								break;
+							}
+							continue;
+						}
+						if (prun != 3) {
+							continue;
+						}
+						setPruning(table, idx, next);
+						layer++;
+						for (int k = 1, symState = SymStateFlipSlice[symx]; (symState >>= 1) != 0; k++) {
+							if ((symState & 1) != 1) {
+								continue;
+							}
+							int idxx = symx * N_TWIST + TwistConj[twistx][k];
+							if (getPruning(table, idxx) == 3) {
+								setPruning(table, idxx, next);
+								layer++;
+							}
+						}
+					}
+				}
+			}
+			done += layer;
+			selected[(depth + 1) % 3] += layer;
+			// System.out.println(String.format("%2d%12d%10dms", depth + 1, done, (System.nanoTime() - tt) / 1000000));
+		}
+		Prun = table;
+	}
+
+	static synchronized void saveTo(DataOutput out) throws IOException {
+		init();
+		out.writeInt(N_SIZE);
+		for (int val : Prun) {
+			out.writeInt(val);
+		}
+	}
+
+	static synchronized void initFrom(DataInput in) throws IOException {
+		if (in.readInt() != N_SIZE) {
+			throw new IOException("Not an optimal pruning table");
+		}
+		int[] table = new int[N_SIZE / 16 + 1];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = in.readInt();
+		}
+		Prun = table;
+		init();
+	}
+}
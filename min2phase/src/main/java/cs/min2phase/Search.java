@@ -16,28 +16,53 @@
  */
 package cs.min2phase;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Rubik's Cube Solver.<br>
  * A much faster and smaller implemention of Two-Phase Algorithm.<br>
  * Symmetry is used to reduce memory used.<br>
  * Total Memory used is about 1MB.<br>
+ * The tables are shared, but a Search must only be used by one thread at a time.<br>
  * @author Shuang Chen
  */
 public class Search {
 
-	public static final boolean USE_TWIST_FLIP_PRUN = true;
+	/**
+	 * How much memory the pruning tables may take up, see setTableProfile(...).
+	 */
+	public enum TableProfile {
+		/**
+		 * Leaves out the pruning table on twist and flip, and the corner parity of the phase 2 tables. This saves
+		 * about 0.4MB of tables, at the price of more probes per solve.
+		 */
+		LEAN,
+		/**
+		 * All tables. This is the default.
+		 */
+		FAST
+	}
 
 	//Options for research purpose.
 	static final int MAX_PRE_MOVES = 20;
 	static final boolean TRY_INVERSE = true;
 	static final boolean TRY_THREE_AXES = true;
 
-	static final boolean USE_COMBP_PRUN = USE_TWIST_FLIP_PRUN;
-	static final boolean USE_CONJ_PRUN = USE_TWIST_FLIP_PRUN;
 	protected static int MIN_P1LENGTH_PRE = 7;
 	protected static int MAX_DEPTH2 = 12;
 
-	static boolean inited = false;
+	/**
+	 * The searches running right now, which keep releaseTables() from dropping the tables under them.
+	 */
+	static final AtomicInteger activeSearches = new AtomicInteger();
+	static volatile long lastUsed = 0;
 
 	protected int[] move = new int[31];
 	protected int[] moveSol = new int[31];
@@ -54,12 +79,15 @@ public class Search {
 	protected int maxDep2;
 	protected int sol;
 	protected String solution;
+	protected int[] solutionMoves;
 	protected long probe;
 	protected long probeMax;
 	protected long probeMin;
+	protected long deadline = 0;
 	protected int verbose;
 	protected int valid1;
 	protected boolean allowShorter = false;
+	protected boolean useOptPrun = false;
 	public CubieCube cc = new CubieCube();
 	protected CubieCube[] urfCubieCube = new CubieCube[6];
 	protected CoordCube[] urfCoordCube = new CoordCube[6];
@@ -71,6 +99,16 @@ public class Search {
 	int maxPreMoves = 0;
 
 	protected boolean isRec = false;
+	private boolean resumable = false;
+
+	private boolean parallelConjugates = false;
+	private Search[] conjugateSearchers = new Search[6];
+	/**
+	 * Set on the searchers of a parallel solve, each of which only searches one of the six conjugates.
+	 */
+	protected SharedBound bound = null;
+
+	private byte[] facelets = new byte[54];
 
 	/**
 	 *     Verbose_Mask determines if a " . " separates the phase1 and phase2 parts of the solver string like in F' R B R L2 F .
@@ -173,23 +211,139 @@ public class Search {
 	 *      Error 7: No solution exists for the given maxDepth<br>
 	 *      Error 8: Probe limit exceeded, no solution within given probMax
 	 */
-	public synchronized String solution(String facelets, int maxDepth, long probeMax, long probeMin, int verbose) {
+	public String solution(String facelets, int maxDepth, long probeMax, long probeMin, int verbose) {
+		int check = verify(facelets);
+		if (check != 0) {
+			return "Error " + Math.abs(check);
+		}
+		return solve(maxDepth, probeMax, probeMin, verbose);
+	}
+
+	/**
+	 * Same as {@link #solution(java.lang.String facelets, int maxDepth, long probeMax, long probeMin, int verbose)},
+	 * but the cube is given as the colors of its 54 facelets, see {@link #verify(byte[] facelets)}.
+	 * This saves building and parsing the cube definition string.
+	 */
+	public String solution(byte[] facelets, int maxDepth, long probeMax, long probeMin, int verbose) {
 		int check = verify(facelets);
 		if (check != 0) {
 			return "Error " + Math.abs(check);
 		}
+		return solve(maxDepth, probeMax, probeMin, verbose);
+	}
+
+	/**
+	 * Solves a cube given by its cubies, for the solvers of bigger cubes once they are reduced to a 3x3x3,
+	 * without building and parsing a cube definition string.
+	 *
+	 * @param cp the corner at each position, with the positions and the corners in the order URF, UFL, ULB, UBR, DFR, DLF, DBL, DRB.
+	 * @param co the twist of each corner, 0 if its U or D facelet is on U or D, 1 if clockwise from there, 2 otherwise.
+	 * @param ep the edge at each position, in the order UR, UF, UL, UB, DR, DF, DL, DB, FR, FL, BL, BR.
+	 * @param eo the flip of each edge.
+	 * @return the moves of the solution, see {@link #solutionMoves()}, or null if the cube is invalid or no solution
+	 *      is found within the limits, see {@link #solution(java.lang.String facelets, int maxDepth, long probeMax, long probeMin, int verbose)}.
+	 */
+	public int[] solveCubies(byte[] cp, byte[] co, byte[] ep, byte[] eo, int maxDepth, long probeMax, long probeMin, int verbose) {
+		for (int i = 0; i < 8; i++) {
+			cc.ca[i] = (byte) (co[i] << 3 | cp[i]);
+		}
+		for (int i = 0; i < 12; i++) {
+			cc.ea[i] = (byte) (ep[i] << 1 | eo[i]);
+		}
+		if (cc.verify() != 0) {
+			return null;
+		}
+		solve(maxDepth, probeMax, probeMin, verbose);
+		return solutionMoves();
+	}
+
+	/**
+	 * Receives the solutions of {@link #solveUntil(java.lang.String facelets, int maxDepth, long deadline, int verbose, SolutionListener listener)}
+	 * as they are found, each one shorter than the one before.
+	 */
+	public interface SolutionListener {
+		/**
+		 * @param solution the solution, formatted as solution(...) would return it.
+		 * @param moves the same solution, see {@link #solutionMoves()}.
+		 */
+		void solutionFound(String solution, int[] moves);
+	}
+
+	/**
+	 * Searches for a solution, then for shorter and shorter ones, until the wall clock reaches deadline. This is the
+	 * same as calling solution(...) and then next(...) as long as time allows.
+	 *
+	 * @param deadline in milliseconds, as returned by System.currentTimeMillis()
+	 * @param listener is told about each solution as soon as it is found, may be null.
+	 * @return the shortest solution found, or an error code as for solution(...). Error 8 means that no solution was
+	 *      found by the deadline.
+	 */
+	public String solveUntil(String facelets, int maxDepth, long deadline, int verbose, SolutionListener listener) {
+		int check = verify(facelets);
+		if (check != 0) {
+			return "Error " + Math.abs(check);
+		}
+		return solveUntil(maxDepth, deadline, verbose, listener);
+	}
+
+	/**
+	 * Same as {@link #solveUntil(java.lang.String facelets, int maxDepth, long deadline, int verbose, SolutionListener listener)},
+	 * with the cube given as in {@link #solution(byte[] facelets, int maxDepth, long probeMax, long probeMin, int verbose)}.
+	 */
+	public String solveUntil(byte[] facelets, int maxDepth, long deadline, int verbose, SolutionListener listener) {
+		int check = verify(facelets);
+		if (check != 0) {
+			return "Error " + Math.abs(check);
+		}
+		return solveUntil(maxDepth, deadline, verbose, listener);
+	}
+
+	private String solveUntil(int maxDepth, long deadline, int verbose, SolutionListener listener) {
+		this.deadline = deadline;
+		try {
+			// With probeMin = 0 every search returns as soon as it finds a solution.
+			String best = solve(maxDepth, Long.MAX_VALUE, 0, verbose);
+			int[] bestMoves = solutionMoves;
+			String next = best;
+			while (!next.startsWith("Error")) {
+				best = next;
+				bestMoves = solutionMoves;
+				if (listener != null) {
+					listener.solutionFound(best, bestMoves.clone());
+				}
+				next = next(Long.MAX_VALUE, 0, verbose);
+			}
+			if (bestMoves != null) {
+				// The last, unsuccessful call to next() forgot about it.
+				solution = best;
+				solutionMoves = bestMoves;
+			}
+			return best;
+		} finally {
+			this.deadline = 0;
+		}
+	}
+
+	private String solve(int maxDepth, long probeMax, long probeMin, int verbose) {
 		this.sol = maxDepth + 1;
 		this.probe = 0;
 		this.probeMax = probeMax;
 		this.probeMin = Math.min(probeMin, probeMax);
 		this.verbose = verbose;
 		this.solution = null;
+		this.solutionMoves = null;
 		this.isRec = false;
 
-		CoordCube.init(false);
-		initSearch();
+		activeSearches.incrementAndGet();
+		try {
+			CoordCube.init(false);
+			initSearch();
 
-		return (verbose & OPTIMAL_SOLUTION) == 0 ? search() : searchopt();
+			return (verbose & OPTIMAL_SOLUTION) == 0 ? search() : searchopt();
+		} finally {
+			lastUsed = System.currentTimeMillis();
+			activeSearches.decrementAndGet();
+		}
 	}
 
 	protected void initSearch() {
@@ -211,18 +365,106 @@ public class Search {
 		}
 	}
 
-	public synchronized String next(long probeMax, long probeMin, int verbose) {
+	public String next(long probeMax, long probeMin, int verbose) {
 		this.probe = 0;
 		this.probeMax = probeMax;
 		this.probeMin = Math.min(probeMin, probeMax);
 		this.solution = null;
-		this.isRec = (this.verbose & OPTIMAL_SOLUTION) == (verbose & OPTIMAL_SOLUTION);
+		this.solutionMoves = null;
+		// A parallel solve does not leave this searcher where the solution was found,
+		// so we start over, only looking for solutions shorter than the last one.
+		this.isRec = resumable && (this.verbose & OPTIMAL_SOLUTION) == (verbose & OPTIMAL_SOLUTION);
 		this.verbose = verbose;
-		return (verbose & OPTIMAL_SOLUTION) == 0 ? search() : searchopt();
+		activeSearches.incrementAndGet();
+		try {
+			// The tables may have been released since the last search.
+			CoordCube.init(false);
+			return (verbose & OPTIMAL_SOLUTION) == 0 ? search() : searchopt();
+		} finally {
+			lastUsed = System.currentTimeMillis();
+			activeSearches.decrementAndGet();
+		}
+	}
+
+	/**
+	 * The moves of the solution returned by the last call to solution(...) or next(...), as indices into
+	 * "U", "U2", "U'", "R", "R2", "R'", "F", "F2", "F'", "D", "D2", "D'", "L", "L2", "L'", "B", "B2", "B'".
+	 * Like the solution string, they are inverted if INVERSE_SOLUTION was requested.
+	 *
+	 * @return the moves, or null if no solution was found.
+	 */
+	public int[] solutionMoves() {
+		return solutionMoves == null ? null : solutionMoves.clone();
+	}
+
+	/**
+	 * Chooses whether the pruning tables are built on all available cores, which is the default on multi-core
+	 * machines, or on the calling thread only. The tables come out identical either way.
+	 */
+	public static void setParallelInit(boolean parallelInit) {
+		CoordCube.parallelInit = parallelInit;
+	}
+
+	/**
+	 * Lets solution(...) search the six conjugates of the cube (three axes, each either the cube or its inverse) on
+	 * separate threads of the common ForkJoinPool, instead of one after the other. The threads share the length of
+	 * the best solution so far, and the probe limits apply to all of them together, so a solve gets through its
+	 * probes in a fraction of the wall time. The solutions found are just as valid, but not necessarily the same ones
+	 * a sequential solve would return. Optimal solves are always sequential.
+	 */
+	public void setParallelConjugates(boolean parallelConjugates) {
+		this.parallelConjugates = parallelConjugates;
+	}
+
+	/**
+	 * Chooses the tables built by the next init() or solution(...). If the tables have been built for the other
+	 * profile already, they are rebuilt then, so this must not be called while another thread is searching.
+	 */
+	public synchronized static void setTableProfile(TableProfile profile) {
+		CoordCube.setProfile(profile);
+	}
+
+	/**
+	 * Lets OPTIMAL_SOLUTION searches use a pruning table on the whole phase 1 coordinate, which takes about 70MB and
+	 * makes optimal solves much faster. It is built by the first optimal search after enabling it, in about half a
+	 * minute, unless it was loaded by {@link cs.min2phase.Tools#initOptimalTable(java.io.DataInput)} already.
+	 */
+	public static void setOptimalTable(boolean enabled) {
+		OptPrun.enabled = enabled;
+	}
+
+	public static TableProfile getTableProfile() {
+		return CoordCube.profile;
+	}
+
+	/**
+	 * @return the number of bytes taken up by the tables built so far.
+	 */
+	public static long tableBytes() {
+		return CoordCube.tableBytes() + OptPrun.tableBytes();
+	}
+
+	/**
+	 * Drops the pruning tables, including the optimal one, to free their memory. They are built again by the next
+	 * search that needs them, so this is meant for solvers that have been idle for a while.
+	 *
+	 * @return false if a search was running, in which case the tables it uses are kept.
+	 */
+	public static boolean releaseTables() {
+		boolean released = CoordCube.release(activeSearches);
+		return OptPrun.release(activeSearches) && released;
+	}
+
+	/**
+	 * @return the value of System.currentTimeMillis() when the last search finished or the tables
+	 * were built, or 0 if neither happened yet.
+	 */
+	public static long lastUsed() {
+		return lastUsed;
 	}
 
 	public static boolean isInited() {
-		return inited;
+		return CoordCube.initLevel == 2;
 	}
 
 	public long numberOfProbes() {
@@ -233,16 +475,13 @@ public class Search {
 		return sol;
 	}
 
-	public synchronized static void init() {
-		if (!inited) {
-			CoordCube.init(true);
-			inited = true;
-		}
+	public static void init() {
+		CoordCube.init(true);
+		lastUsed = System.currentTimeMillis();
 	}
 
 	public int verify(String facelets) {
-		int count = 0x000000;
-		byte[] f = new byte[54];
+		byte[] f = this.facelets;
 		try {
 			String center = new String(
 			    new char[] {
@@ -259,11 +498,47 @@ public class Search {
 				if (f[i] == -1) {
 					return -1;
 				}
-				count += 1 << (f[i] << 2);
 			}
 		} catch (Exception e) {
 			return -1;
 		}
+		return verifyFacelets(f);
+	}
+
+	/**
+	 * Same as {@link #verify(java.lang.String facelets)}, but with the color of each facelet given as a number
+	 * between 0 and 5, in the order of the cube definition string. Like in the cube definition string, it does not
+	 * matter which number stands for which color, the centers tell them apart.
+	 */
+	public int verify(byte[] facelets) {
+		if (facelets.length != 54) {
+			return -1;
+		}
+		byte[] face = {-1, -1, -1, -1, -1, -1};
+		byte[] centers = {Util.U5, Util.R5, Util.F5, Util.D5, Util.L5, Util.B5};
+		for (int i = 5; i >= 0; i--) {
+			int color = facelets[centers[i]];
+			if (color < 0 || color >= 6) {
+				return -1;
+			}
+			face[color] = (byte) i;
+		}
+		byte[] f = this.facelets;
+		for (int i = 0; i < 54; i++) {
+			int color = facelets[i];
+			if (color < 0 || color >= 6 || face[color] == -1) {
+				return -1;
+			}
+			f[i] = face[color];
+		}
+		return verifyFacelets(f);
+	}
+
+	private int verifyFacelets(byte[] f) {
+		int count = 0x000000;
+		for (int i = 0; i < 54; i++) {
+			count += 1 << (f[i] << 2);
+		}
 		if (count != 0x999999) {
 			return -1;
 		}
@@ -315,6 +590,10 @@ public class Search {
 	}
 
 	protected String search() {
+		if (parallelConjugates && !isRec) {
+			return searchConjugates();
+		}
+		resumable = true;
 		for (length1 = isRec ? length1 : 0; length1 < sol; length1++) {
 			maxDep2 = Math.min(MAX_DEPTH2, sol - length1 - 1);
 			for (urfIdx = isRec ? urfIdx : 0; urfIdx < 6; urfIdx++) {
@@ -329,6 +608,140 @@ public class Search {
 		return solution == null ? "Error 7" : solution;
 	}
 
+	/**
+	 * Best solution of a parallel solve, and the probes spent by all of its searchers.
+	 */
+	static final class SharedBound {
+		final AtomicLong probe = new AtomicLong();
+		volatile int sol;
+		volatile boolean stop = false;
+		String solution = null;
+		int[] solutionMoves = null;
+
+		SharedBound(int sol) {
+			this.sol = sol;
+		}
+
+		synchronized void offer(Search searcher) {
+			if (searcher.sol < sol) {
+				solution = searcher.solution;
+				solutionMoves = searcher.solutionMoves;
+				sol = searcher.sol;
+			}
+		}
+
+		/**
+		 * Catches searcher up with the solutions and probes of the others.
+		 * @return false if the solve is over.
+		 */
+		boolean pull(Search searcher) {
+			if (sol < searcher.sol) {
+				synchronized (this) {
+					searcher.solution = solution;
+					searcher.solutionMoves = solutionMoves;
+					searcher.sol = sol;
+				}
+				searcher.maxDep2 = Math.min(MAX_DEPTH2, searcher.sol - searcher.length1 - 1);
+			}
+			searcher.probe = probe.get();
+			return !stop;
+		}
+	}
+
+	protected Search newConjugateSearcher() {
+		return new Search();
+	}
+
+	/**
+	 * Sets up searcher to continue the solve initSearch() just prepared.
+	 */
+	protected void copySearchTo(Search searcher) {
+		for (int i = 0; i < 6; i++) {
+			searcher.urfCubieCube[i].copy(urfCubieCube[i]);
+		}
+		searcher.conjMask = conjMask;
+		searcher.selfSym = selfSym;
+		searcher.maxPreMoves = maxPreMoves;
+		searcher.verbose = verbose;
+		searcher.probeMax = probeMax;
+		searcher.probeMin = probeMin;
+		searcher.deadline = deadline;
+		searcher.sol = sol;
+		searcher.probe = 0;
+		searcher.solution = null;
+		searcher.solutionMoves = null;
+		searcher.isRec = false;
+		searcher.valid1 = 0;
+	}
+
+	private String searchConjugates() {
+		SharedBound bound = new SharedBound(sol);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < 6; i++) {
+			if ((conjMask & 1 << i) != 0) {
+				continue;
+			}
+			if (conjugateSearchers[i] == null) {
+				conjugateSearchers[i] = newConjugateSearcher();
+			}
+			final Search searcher = conjugateSearchers[i];
+			final int urf = i;
+			copySearchTo(searcher);
+			searcher.bound = bound;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					searcher.searchConjugate(urf);
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			bound.stop = true;
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		resumable = false;
+		sol = bound.sol;
+		solution = bound.solution;
+		solutionMoves = bound.solutionMoves;
+		probe = bound.probe.get();
+		if (solution != null) {
+			return solution;
+		}
+		return bound.stop ? "Error 8" : "Error 7";
+	}
+
+	void searchConjugate(int urf) {
+		urfIdx = urf;
+		for (length1 = 0; bound.pull(this) && length1 < sol; length1++) {
+			maxDep2 = Math.min(MAX_DEPTH2, sol - length1 - 1);
+			if (phase1PreMoves(maxPreMoves, -30, urfCubieCube[urf], (int) (selfSym & 0xffff)) == 0) {
+				bound.stop = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return true if the search has to stop, with what it has found so far.
+	 */
+	protected boolean probeLimitReached() {
+		return solution == null ? probe >= probeMax : minProbeReached();
+	}
+
+	/**
+	 * @return true if the search has spent probeMin, so that it can stop at the solution it has.
+	 */
+	protected boolean minProbeReached() {
+		return probe >= probeMin;
+	}
+
 	/**
 	 * @return
 	 *      0: Found or Probe limit exceeded
@@ -337,10 +750,16 @@ public class Search {
 	 */
 	protected int initPhase2Pre() {
 		isRec = false;
-		if (probe >= (solution == null ? probeMax : probeMin)) {
+		if (bound != null && !bound.pull(this)) {
+			return 0;
+		}
+		if (probeLimitReached() || deadline != 0 && System.currentTimeMillis() >= deadline) {
 			return 0;
 		}
 		++probe;
+		if (bound != null) {
+			bound.probe.incrementAndGet();
+		}
 
 		for (int i = valid1; i < depth1; i++) {
 			CubieCube.CornMult(phase1Cubie[i], CubieCube.moveCube[move[i]], phase1Cubie[i + 1]);
@@ -445,12 +864,16 @@ public class Search {
 			for (int i = preMoveLen - 1; i >= 0; i--) {
 				appendSolMove(preMoves[i]);
 			}
+			solutionMoves = solutionToMoves();
 			solution = solutionToString();
+			if (bound != null) {
+				bound.offer(this);
+			}
 		}
 
 		if (depth2 != maxDep2) { //At least one solution has been found.
 			maxDep2 = Math.min(MAX_DEPTH2, sol - length1 - 1);
-			return probe >= probeMin ? 0 : 1;
+			return minProbeReached() ? 0 : 1;
 		}
 		return 1;
 	}
@@ -494,7 +917,7 @@ public class Search {
 					continue;
 				}
 
-				if (USE_CONJ_PRUN) {
+				if (CoordCube.USE_CONJ_PRUN) {
 					prun = nodeUD[maxl].doMovePrunConj(node, m);
 					if (prun > maxl) {
 						break;
@@ -517,10 +940,17 @@ public class Search {
 	}
 
 	protected String searchopt() {
+		useOptPrun = OptPrun.enabled;
+		if (useOptPrun) {
+			OptPrun.init();
+		}
 		int maxprun1 = 0;
 		int maxprun2 = 0;
 		for (int i = 0; i < 6; i++) {
 			urfCoordCube[i].calcPruning(false);
+			if (useOptPrun) {
+				urfCoordCube[i].setWithOptPrun(urfCubieCube[i]);
+			}
 			if (i < 3) {
 				maxprun1 = Math.max(maxprun1, urfCoordCube[i].prun);
 			} else {
@@ -570,8 +1000,9 @@ public class Search {
 				}
 
 				// UD Axis
-				int prun_ud = Math.max(nodeUD[maxl].doMovePrun(ud, m, false),
-				                       USE_CONJ_PRUN ? nodeUD[maxl].doMovePrunConj(ud, m) : 0);
+				int prun_ud = useOptPrun ? nodeUD[maxl].doMovePrunOpt(ud, m)
+				              : Math.max(nodeUD[maxl].doMovePrun(ud, m, false),
+				                         CoordCube.USE_CONJ_PRUN ? nodeUD[maxl].doMovePrunConj(ud, m) : 0);
 				if (prun_ud > maxl) {
 					break;
 				} else if (prun_ud == maxl) {
@@ -581,8 +1012,9 @@ public class Search {
 				// RL Axis
 				m = CubieCube.urfMove[2][m];
 
-				int prun_rl = Math.max(nodeRL[maxl].doMovePrun(rl, m, false),
-				                       USE_CONJ_PRUN ? nodeRL[maxl].doMovePrunConj(rl, m) : 0);
+				int prun_rl = useOptPrun ? nodeRL[maxl].doMovePrunOpt(rl, m)
+				              : Math.max(nodeRL[maxl].doMovePrun(rl, m, false),
+				                         CoordCube.USE_CONJ_PRUN ? nodeRL[maxl].doMovePrunConj(rl, m) : 0);
 				if (prun_rl > maxl) {
 					break;
 				} else if (prun_rl == maxl) {
@@ -592,8 +1024,9 @@ public class Search {
 				// FB Axis
 				m = CubieCube.urfMove[2][m];
 
-				int prun_fb = Math.max(nodeFB[maxl].doMovePrun(fb, m, false),
-				                       USE_CONJ_PRUN ? nodeFB[maxl].doMovePrunConj(fb, m) : 0);
+				int prun_fb = useOptPrun ? nodeFB[maxl].doMovePrunOpt(fb, m)
+				              : Math.max(nodeFB[maxl].doMovePrun(fb, m, false),
+				                         CoordCube.USE_CONJ_PRUN ? nodeFB[maxl].doMovePrunConj(fb, m) : 0);
 				if (prun_ud == prun_rl && prun_rl == prun_fb && prun_fb != 0) {
 					prun_fb++;
 				}
@@ -696,6 +1129,15 @@ public class Search {
 		return -1;
 	}
 
+	protected int[] solutionToMoves() {
+		int[] moves = new int[sol];
+		int urf = (verbose & INVERSE_SOLUTION) != 0 ? (urfIdx + 3) % 6 : urfIdx;
+		for (int s = 0; s < sol; s++) {
+			moves[s] = CubieCube.urfMove[urf][moveSol[urf < 3 ? s : sol - 1 - s]];
+		}
+		return moves;
+	}
+
 	protected String solutionToString() {
 		StringBuffer sb = new StringBuffer();
 		int urf = (verbose & INVERSE_SOLUTION) != 0 ? (urfIdx + 3) % 6 : urfIdx;
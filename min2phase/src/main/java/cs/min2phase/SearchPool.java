@@ -0,0 +1,70 @@
+package cs.min2phase;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of searchers, which are not thread safe themselves.
+ * At most capacity searchers are ever created, and they are handed to one thread at a time. A thread that finds all
+ * of them in use waits for one to be released, without holding any monitor, so this also suits virtual threads.
+ */
+public class SearchPool<T> {
+	private final Supplier<? extends T> factory;
+	private final Semaphore permits;
+	private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param capacity the maximum number of searchers in use at the same time.
+	 * @param factory creates a searcher when none is idle.
+	 */
+	public SearchPool(int capacity, Supplier<? extends T> factory) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.factory = factory;
+		this.permits = new Semaphore(capacity);
+	}
+
+	/**
+	 * A pool with one searcher per available processor.
+	 */
+	public SearchPool(Supplier<? extends T> factory) {
+		this(Runtime.getRuntime().availableProcessors(), factory);
+	}
+
+	/**
+	 * Takes a searcher, waiting for one if all of them are in use. It has to be given back with release(...).
+	 */
+	public T acquire() {
+		permits.acquireUninterruptibly();
+		T searcher = idle.poll();
+		if (searcher != null) {
+			return searcher;
+		}
+		try {
+			return factory.get();
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	public void release(T searcher) {
+		idle.offer(searcher);
+		permits.release();
+	}
+
+	/**
+	 * Runs task with a searcher of the pool.
+	 */
+	public <R> R apply(Function<? super T, ? extends R> task) {
+		T searcher = acquire();
+		try {
+			return task.apply(searcher);
+		} finally {
+			release(searcher);
+		}
+	}
+}
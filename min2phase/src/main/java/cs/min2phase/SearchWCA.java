@@ -44,11 +44,58 @@ public class SearchWCA extends Search {
 	long startTime = 0;
 
 	@Override
-	public synchronized String solution(String facelets, int maxDepth, long probeMax, long probeMin, int verbose) {
+	public String solution(String facelets, int maxDepth, long probeMax, long probeMin, int verbose) {
 		return solution(facelets, maxDepth, probeMax, probeMin, verbose, null, null);
 	}
 
-	public synchronized String solution(String facelets, int maxDepth, long probeMax, long probeMin, int verbose, String firstAxisRestrictionStr, String lastAxisRestrictionStr) {
+	@Override
+	public String solution(byte[] facelets, int maxDepth, long probeMax, long probeMin, int verbose) {
+		return solution(facelets, maxDepth, probeMax, probeMin, verbose, null, null);
+	}
+
+	public String solution(String facelets, int maxDepth, long probeMax, long probeMin, int verbose, String firstAxisRestrictionStr, String lastAxisRestrictionStr) {
+		String error = initAxisRestrictions(firstAxisRestrictionStr, lastAxisRestrictionStr);
+		if (error != null) {
+			return error;
+		}
+		return super.solution(facelets, maxDepth, probeMax, probeMin, verbose);
+	}
+
+	public String solution(byte[] facelets, int maxDepth, long probeMax, long probeMin, int verbose, String firstAxisRestrictionStr, String lastAxisRestrictionStr) {
+		String error = initAxisRestrictions(firstAxisRestrictionStr, lastAxisRestrictionStr);
+		if (error != null) {
+			return error;
+		}
+		return super.solution(facelets, maxDepth, probeMax, probeMin, verbose);
+	}
+
+	@Override
+	public String solveUntil(String facelets, int maxDepth, long deadline, int verbose, SolutionListener listener) {
+		return solveUntil(facelets, maxDepth, deadline, verbose, listener, null, null);
+	}
+
+	@Override
+	public String solveUntil(byte[] facelets, int maxDepth, long deadline, int verbose, SolutionListener listener) {
+		return solveUntil(facelets, maxDepth, deadline, verbose, listener, null, null);
+	}
+
+	public String solveUntil(String facelets, int maxDepth, long deadline, int verbose, SolutionListener listener, String firstAxisRestrictionStr, String lastAxisRestrictionStr) {
+		String error = initAxisRestrictions(firstAxisRestrictionStr, lastAxisRestrictionStr);
+		if (error != null) {
+			return error;
+		}
+		return super.solveUntil(facelets, maxDepth, deadline, verbose, listener);
+	}
+
+	public String solveUntil(byte[] facelets, int maxDepth, long deadline, int verbose, SolutionListener listener, String firstAxisRestrictionStr, String lastAxisRestrictionStr) {
+		String error = initAxisRestrictions(firstAxisRestrictionStr, lastAxisRestrictionStr);
+		if (error != null) {
+			return error;
+		}
+		return super.solveUntil(facelets, maxDepth, deadline, verbose, listener);
+	}
+
+	private String initAxisRestrictions(String firstAxisRestrictionStr, String lastAxisRestrictionStr) {
 		firstMoveFilter = new int[6];
 		lastMoveFilter = new int[6];
 		isAxisRestricted = false;
@@ -76,7 +123,7 @@ public class SearchWCA extends Search {
 		}
 		init();
 		startTime = System.currentTimeMillis();
-		return super.solution(facelets, maxDepth, probeMax, probeMin, verbose);
+		return null;
 	}
 
 	@Override
@@ -106,13 +153,28 @@ public class SearchWCA extends Search {
 	}
 
 	@Override
-	protected int initPhase2Pre() {
-		isRec = false;
-		if (System.currentTimeMillis() - startTime >= (solution == null ? probeMax : probeMin)) {
-			return 0;
-		}
-		probe = -1;
-		return super.initPhase2Pre();
+	protected boolean probeLimitReached() {
+		return solution == null ? System.currentTimeMillis() - startTime >= probeMax : minProbeReached();
+	}
+
+	@Override
+	protected boolean minProbeReached() {
+		return System.currentTimeMillis() - startTime >= probeMin;
+	}
+
+	@Override
+	protected Search newConjugateSearcher() {
+		return new SearchWCA();
+	}
+
+	@Override
+	protected void copySearchTo(Search searcher) {
+		super.copySearchTo(searcher);
+		SearchWCA wca = (SearchWCA) searcher;
+		wca.firstMoveFilter = firstMoveFilter;
+		wca.lastMoveFilter = lastMoveFilter;
+		wca.isAxisRestricted = isAxisRestricted;
+		wca.startTime = startTime;
 	}
 
 	@Override
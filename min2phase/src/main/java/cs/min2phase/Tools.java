@@ -14,6 +14,21 @@ public class Tools {
 
 	protected Tools() {}
 
+	/**
+	 * Saves the pruning table of {@link cs.min2phase.Search#setOptimalTable(boolean)}, building it first if necessary.
+	 */
+	public static void saveOptimalTable(DataOutput out) throws IOException {
+		OptPrun.saveTo(out);
+	}
+
+	/**
+	 * Loads a pruning table saved by {@link cs.min2phase.Tools#saveOptimalTable(java.io.DataOutput)}, so that the
+	 * optimal search does not have to build it.
+	 */
+	public static void initOptimalTable(DataInput in) throws IOException {
+		OptPrun.initFrom(in);
+	}
+
 	/**
 	 * Set Random Source.
 	 * @param gen new random source.
@@ -40,6 +55,14 @@ public class Tools {
 		return randomState(STATE_RANDOM, STATE_RANDOM, STATE_RANDOM, STATE_RANDOM, gen);
 	}
 
+	/**
+	 * Same as {@link cs.min2phase.Tools#randomCube(java.util.Random)}, but the cube is returned as the colors of its
+	 * facelets, ready for {@link cs.min2phase.Search#solution(byte[] facelets, int maxDepth, long probeMax, long probeMin, int verbose)}.
+	 */
+	public static byte[] randomFacelets(Random gen) {
+		return Util.toFacelets(randomCubieCube(STATE_RANDOM, STATE_RANDOM, STATE_RANDOM, STATE_RANDOM, gen));
+	}
+
 	private static int resolveOri(byte[] arr, int base) {
 		int sum = 0, idx = 0, lastUnknown = -1;
 		for (int i = 0; i < arr.length; i++) {
@@ -128,6 +151,10 @@ public class Tools {
 	protected static final byte[] STATE_SOLVED = new byte[0];
 
 	protected static String randomState(byte[] cp, byte[] co, byte[] ep, byte[] eo, Random gen) {
+		return Util.toFaceCube(randomCubieCube(cp, co, ep, eo, gen));
+	}
+
+	private static CubieCube randomCubieCube(byte[] cp, byte[] co, byte[] ep, byte[] eo, Random gen) {
 		int parity;
 		int cntUE = ep == STATE_RANDOM ? 12 : countUnknown(ep);
 		int cntUC = cp == STATE_RANDOM ? 8 : countUnknown(cp);
@@ -168,12 +195,11 @@ public class Tools {
 				epVal = getNPerm(ep, 12);
 			}
 		}
-		return Util.toFaceCube(
-		           new CubieCube(
-		               cpVal,
-		               co == STATE_RANDOM ? gen.nextInt(2187) : (co == STATE_SOLVED ? 0 : resolveOri(co, 3)),
-		               epVal,
-		               eo == STATE_RANDOM ? gen.nextInt(2048) : (eo == STATE_SOLVED ? 0 : resolveOri(eo, 2))));
+		return new CubieCube(
+		           cpVal,
+		           co == STATE_RANDOM ? gen.nextInt(2187) : (co == STATE_SOLVED ? 0 : resolveOri(co, 3)),
+		           epVal,
+		           eo == STATE_RANDOM ? gen.nextInt(2048) : (eo == STATE_SOLVED ? 0 : resolveOri(eo, 2)));
 	}
 
 
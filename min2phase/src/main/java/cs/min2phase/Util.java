@@ -143,26 +143,35 @@ class Util {
 	}
 
 	static String toFaceCube(CubieCube cc) {
-		char[] f = new char[54];
+		byte[] f = toFacelets(cc);
 		char[] ts = {'U', 'R', 'F', 'D', 'L', 'B'};
+		char[] fc = new char[54];
 		for (int i = 0; i < 54; i++) {
-			f[i] = ts[i / 9];
+			fc[i] = ts[f[i]];
+		}
+		return new String(fc);
+	}
+
+	static byte[] toFacelets(CubieCube cc) {
+		byte[] f = new byte[54];
+		for (int i = 0; i < 54; i++) {
+			f[i] = (byte) (i / 9);
 		}
 		for (byte c = 0; c < 8; c++) {
 			int j = cc.ca[c] & 0x7;// cornercubie with index j is at
 			// cornerposition with index c
 			int ori = cc.ca[c] >> 3;// Orientation of this cubie
 			for (byte n = 0; n < 3; n++)
-				f[cornerFacelet[c][(n + ori) % 3]] = ts[cornerFacelet[j][n] / 9];
+				f[cornerFacelet[c][(n + ori) % 3]] = (byte) (cornerFacelet[j][n] / 9);
 		}
 		for (byte e = 0; e < 12; e++) {
 			int j = cc.ea[e] >> 1;// edgecubie with index j is at edgeposition
 			// with index e
 			int ori = cc.ea[e] & 1;// Orientation of this cubie
 			for (byte n = 0; n < 2; n++)
-				f[edgeFacelet[e][(n + ori) % 2]] = ts[edgeFacelet[j][n] / 9];
+				f[edgeFacelet[e][(n + ori) % 2]] = (byte) (edgeFacelet[j][n] / 9);
 		}
-		return new String(f);
+		return f;
 	}
 
 	static int getNParity(int idx, int n) {
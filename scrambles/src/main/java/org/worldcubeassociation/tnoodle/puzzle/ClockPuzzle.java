@@ -28,6 +28,10 @@ public class ClockPuzzle extends Puzzle {
 
     private static final int gap = 5;
 
+    public ClockPuzzle() {
+        indexSolvedNeighborhood = true;
+    }
+
     @Override
     public String getLongName() {
         return "Clock";
@@ -181,13 +185,12 @@ public class ClockPuzzle extends Puzzle {
         }
 
         @Override
-        public boolean equals(Object other) {
-            ClockState o = ((ClockState) other);
-            return Arrays.equals(posit, o.posit);
+        protected boolean equalsState(PuzzleState other) {
+            return Arrays.equals(posit, ((ClockState) other).posit);
         }
 
         @Override
-        public int hashCode() {
+        protected int computeHashCode() {
             return Arrays.hashCode(posit);
         }
 
@@ -8,6 +8,7 @@ import org.worldcubeassociation.tnoodle.svglite.Svg;
 import java.util.*;
 
 import org.worldcubeassociation.tnoodle.scrambles.Puzzle;
+import org.worldcubeassociation.tnoodle.scrambles.PuzzleStateAndGenerator;
 import org.worldcubeassociation.tnoodle.puzzle.TwoByTwoSolver.TwoByTwoState;
 
 public class CubePuzzle extends Puzzle {
@@ -20,6 +21,9 @@ public class CubePuzzle extends Puzzle {
         }
     }
 
+    // The order faces appear in toFaceCube()
+    private static final Face[] FACELET_ORDER = { Face.U, Face.R, Face.F, Face.D, Face.L, Face.B };
+
     private static final String[] DIR_TO_STR = new String[] { null, "", "2", "'" };
     private static final Map<Face, String> faceRotationsByName = new HashMap<>();
     static {
@@ -75,6 +79,10 @@ public class CubePuzzle extends Puzzle {
     private static final int[] DEFAULT_LENGTHS = { 0, 0, 25, 25, 40, 60, 80, 100, 120, 140, 160, 180 };
 
     protected final int size;
+    private final int[][][][] turnPermutations;
+    private final int[][] cornerStickers;
+    private final int[][] normalizingRotations;
+    private final CubeMove[] scrambleMoves;
     protected CubeMove[][] getRandomOrientationMoves(int thickness) {
         CubeMove[] randomUFaceMoves = new CubeMove[] {
             null,
@@ -111,6 +119,11 @@ public class CubePuzzle extends Puzzle {
     public CubePuzzle(int size) {
         assert size >= 0 && size < DEFAULT_LENGTHS.length : "Invalid cube size";
         this.size = size;
+        this.turnPermutations = getTurnPermutations(this);
+        this.cornerStickers = getCornerStickers();
+        this.normalizingRotations = getNormalizingRotations(this);
+        this.scrambleMoves = getScrambleMoves();
+        indexSolvedNeighborhood = true;
     }
 
     @Override
@@ -123,38 +136,41 @@ public class CubePuzzle extends Puzzle {
         return size + "" + size + "" + size;
     }
 
-    private static void swap(int[][][] image,
-            int f1, int x1, int y1,
-            int f2, int x2, int y2,
-            int f3, int x3, int y3,
-            int f4, int x4, int y4,
-            int dir) {
+    /**
+     * A CubeState keeps all of its stickers in one flat byte array,
+     * face after face, and each face in reading order.
+     * @return The position of the sticker at (row, col) of face in that array.
+     */
+    protected int index(int face, int row, int col) {
+        return (face * size + row) * size + col;
+    }
+
+    private static void swap(int[] image, int i1, int i2, int i3, int i4, int dir) {
         if (dir == 1) {
-            int temp = image[f1][x1][y1];
-            image[f1][x1][y1] = image[f2][x2][y2];
-            image[f2][x2][y2] = image[f3][x3][y3];
-            image[f3][x3][y3] = image[f4][x4][y4];
-            image[f4][x4][y4] = temp;
+            int temp = image[i1];
+            image[i1] = image[i2];
+            image[i2] = image[i3];
+            image[i3] = image[i4];
+            image[i4] = temp;
         } else if (dir == 2) {
-            int temp = image[f1][x1][y1];
-            image[f1][x1][y1] = image[f3][x3][y3];
-            image[f3][x3][y3] = temp;
-            temp = image[f2][x2][y2];
-            image[f2][x2][y2] = image[f4][x4][y4];
-            image[f4][x4][y4] = temp;
+            int temp = image[i1];
+            image[i1] = image[i3];
+            image[i3] = temp;
+            temp = image[i2];
+            image[i2] = image[i4];
+            image[i4] = temp;
         } else if (dir == 3) {
-            int temp = image[f4][x4][y4];
-            image[f4][x4][y4] = image[f3][x3][y3];
-            image[f3][x3][y3] = image[f2][x2][y2];
-            image[f2][x2][y2] = image[f1][x1][y1];
-            image[f1][x1][y1] = temp;
+            int temp = image[i4];
+            image[i4] = image[i3];
+            image[i3] = image[i2];
+            image[i2] = image[i1];
+            image[i1] = temp;
         } else {
             assert false;
         }
     }
 
-    private static void slice(Face face, int slice, int dir, int[][][] image) {
-        int size = image[0].length;
+    private void slice(Face face, int slice, int dir, int[] image) {
         assert slice >= 0 && slice < size;
 
         Face sface = face;
@@ -166,39 +182,41 @@ public class CubePuzzle extends Puzzle {
             sslice = size - 1 - slice;
             sdir = 4 - dir;
         }
+        int u = Face.U.ordinal(), r = Face.R.ordinal(), f = Face.F.ordinal();
+        int d = Face.D.ordinal(), l = Face.L.ordinal(), b = Face.B.ordinal();
         for(int j = 0; j < size; j++) {
             if(sface == Face.L) {
                 swap(image,
-                        Face.U.ordinal(), j, sslice,
-                        Face.B.ordinal(), size-1-j, size-1-sslice,
-                        Face.D.ordinal(), j, sslice,
-                        Face.F.ordinal(), j, sslice,
+                        index(u, j, sslice),
+                        index(b, size-1-j, size-1-sslice),
+                        index(d, j, sslice),
+                        index(f, j, sslice),
                         sdir);
             } else if(sface == Face.D) {
                 swap(image,
-                        Face.L.ordinal(), size-1-sslice, j,
-                        Face.B.ordinal(), size-1-sslice, j,
-                        Face.R.ordinal(), size-1-sslice, j,
-                        Face.F.ordinal(), size-1-sslice, j,
+                        index(l, size-1-sslice, j),
+                        index(b, size-1-sslice, j),
+                        index(r, size-1-sslice, j),
+                        index(f, size-1-sslice, j),
                         sdir);
             } else if(sface == Face.B) {
                 swap(image,
-                        Face.U.ordinal(), sslice, j,
-                        Face.R.ordinal(), j, size-1-sslice,
-                        Face.D.ordinal(), size-1-sslice, size-1-j,
-                        Face.L.ordinal(), size-1-j, sslice,
+                        index(u, sslice, j),
+                        index(r, j, size-1-sslice),
+                        index(d, size-1-sslice, size-1-j),
+                        index(l, size-1-j, sslice),
                         sdir);
             } else {
                 assert false;
             }
         }
         if(slice == 0 || slice == size - 1) {
-            int f;
+            int fi;
             if(slice == 0) {
-                f = face.ordinal();
+                fi = face.ordinal();
                 sdir = 4 - dir;
             } else if(slice == size - 1) {
-                f = face.oppositeFace().ordinal();
+                fi = face.oppositeFace().ordinal();
                 sdir = dir;
             } else {
                 assert false;
@@ -207,16 +225,125 @@ public class CubePuzzle extends Puzzle {
             for(int j = 0; j < (size+1)/2; j++) {
                 for(int k = 0; k < size/2; k++) {
                     swap(image,
-                            f, j, k,
-                            f, k, size-1-j,
-                            f, size-1-j, size-1-k,
-                            f, size-1-k, j,
+                            index(fi, j, k),
+                            index(fi, k, size-1-j),
+                            index(fi, size-1-j, size-1-k),
+                            index(fi, size-1-k, j),
                             sdir);
                 }
             }
         }
     }
 
+    /**
+     * Turning a face (and the innerSlice layers behind it) is a fixed
+     * permutation of the sticker positions, so we compute it once per cube
+     * size: turnPermutations[face][innerSlice][dir - 1][i] is the position
+     * whose sticker ends up at position i.
+     */
+    private static final int[][][][][] turnPermutationsBySize = new int[DEFAULT_LENGTHS.length][][][][];
+
+    private static synchronized int[][][][] getTurnPermutations(CubePuzzle puzzle) {
+        int size = puzzle.size;
+        if(turnPermutationsBySize[size] == null) {
+            int[][][][] turnPermutations = new int[6][size][3][];
+            for(Face face : Face.values()) {
+                for(int dir = 1; dir <= 3; dir++) {
+                    int[] perm = new int[6 * size * size];
+                    for(int i = 0; i < perm.length; i++) {
+                        perm[i] = i;
+                    }
+                    for(int innerSlice = 0; innerSlice < size; innerSlice++) {
+                        puzzle.slice(face, innerSlice, dir, perm);
+                        turnPermutations[face.ordinal()][innerSlice][dir - 1] = cloneArr(perm);
+                    }
+                }
+            }
+            turnPermutationsBySize[size] = turnPermutations;
+        }
+        return turnPermutationsBySize[size];
+    }
+
+    /**
+     * There are 24 ways to rotate a cube, and each of them puts the BLD piece
+     * in a different place. normalizingRotations[findBLDCorner(image)] is the
+     * whole cube rotation that brings the BLD piece back home.
+     */
+    private static final int[][][] normalizingRotationsBySize = new int[DEFAULT_LENGTHS.length][][];
+
+    private static synchronized int[][] getNormalizingRotations(CubePuzzle puzzle) {
+        int size = puzzle.size;
+        if(normalizingRotationsBySize[size] == null) {
+            // x, y and z
+            int[][] spins = {
+                puzzle.turnPermutations[Face.R.ordinal()][size - 1][0],
+                puzzle.turnPermutations[Face.U.ordinal()][size - 1][0],
+                puzzle.turnPermutations[Face.F.ordinal()][size - 1][0]
+            };
+
+            // Breadth first search over all the rotations they generate.
+            List<int[]> rotations = new ArrayList<>();
+            int[] identity = new int[6 * size * size];
+            for(int i = 0; i < identity.length; i++) {
+                identity[i] = i;
+            }
+            rotations.add(identity);
+            for(int r = 0; r < rotations.size(); r++) {
+                for(int[] spin : spins) {
+                    int[] rotation = compose(rotations.get(r), spin);
+                    if(rotations.stream().noneMatch(seen -> Arrays.equals(seen, rotation))) {
+                        rotations.add(rotation);
+                    }
+                }
+            }
+            assert rotations.size() == 24;
+
+            byte[] solved = new byte[identity.length];
+            for(int i = 0; i < solved.length; i++) {
+                solved[i] = (byte) (i / (size * size));
+            }
+            int[][] normalizingRotations = new int[24][];
+            for(int[] rotation : rotations) {
+                int[] inverse = new int[rotation.length];
+                for(int i = 0; i < rotation.length; i++) {
+                    inverse[rotation[i]] = i;
+                }
+                int bldCorner = puzzle.findBLDCorner(permute(solved, rotation));
+                assert normalizingRotations[bldCorner] == null;
+                normalizingRotations[bldCorner] = inverse;
+            }
+            normalizingRotationsBySize[size] = normalizingRotations;
+        }
+        return normalizingRotationsBySize[size];
+    }
+
+    /**
+     * @return The permutation that is equivalent to applying first and then second.
+     */
+    private static int[] compose(int[] first, int[] second) {
+        int[] composed = new int[first.length];
+        for(int i = 0; i < composed.length; i++) {
+            composed[i] = first[second[i]];
+        }
+        return composed;
+    }
+
+    private static byte[] permute(byte[] image, int[] perm) {
+        byte[] permuted = new byte[image.length];
+        for(int i = 0; i < permuted.length; i++) {
+            permuted[i] = image[perm[i]];
+        }
+        return permuted;
+    }
+
+    /**
+     * Turns the outer innerSlice + 1 layers of face in a single pass.
+     * @return A new image, image itself is left untouched.
+     */
+    private byte[] turn(byte[] image, Face face, int innerSlice, int dir) {
+        return permute(image, turnPermutations[face.ordinal()][innerSlice][dir - 1]);
+    }
+
     private static final Map<String, Color> defaultColorScheme = new HashMap<>();
     static {
         defaultColorScheme.put("B", Color.BLUE);
@@ -247,22 +374,23 @@ public class CubePuzzle extends Puzzle {
         return new Dimension(getCubeViewWidth(unitSize, gap, size), getCubeViewHeight(unitSize, gap, size));
     }
 
-    private void drawCube(Svg g, int[][][] state, int gap, int cubieSize, Map<String, Color> colorScheme) {
-        paintCubeFace(g, gap, 2*gap+size*cubieSize, size, cubieSize, state[Face.L.ordinal()], colorScheme);
-        paintCubeFace(g, 2*gap+size*cubieSize, 3*gap+2*size*cubieSize, size, cubieSize, state[Face.D.ordinal()], colorScheme);
-        paintCubeFace(g, 4*gap+3*size*cubieSize, 2*gap+size*cubieSize, size, cubieSize, state[Face.B.ordinal()], colorScheme);
-        paintCubeFace(g, 3*gap+2*size*cubieSize, 2*gap+size*cubieSize, size, cubieSize, state[Face.R.ordinal()], colorScheme);
-        paintCubeFace(g, 2*gap+size*cubieSize, gap, size, cubieSize, state[Face.U.ordinal()], colorScheme);
-        paintCubeFace(g, 2*gap+size*cubieSize, 2*gap+size*cubieSize, size, cubieSize, state[Face.F.ordinal()], colorScheme);
+    private void drawCube(Svg g, byte[] state, int gap, int cubieSize, Map<String, Color> colorScheme) {
+        paintCubeFace(g, gap, 2*gap+size*cubieSize, cubieSize, state, Face.L, colorScheme);
+        paintCubeFace(g, 2*gap+size*cubieSize, 3*gap+2*size*cubieSize, cubieSize, state, Face.D, colorScheme);
+        paintCubeFace(g, 4*gap+3*size*cubieSize, 2*gap+size*cubieSize, cubieSize, state, Face.B, colorScheme);
+        paintCubeFace(g, 3*gap+2*size*cubieSize, 2*gap+size*cubieSize, cubieSize, state, Face.R, colorScheme);
+        paintCubeFace(g, 2*gap+size*cubieSize, gap, cubieSize, state, Face.U, colorScheme);
+        paintCubeFace(g, 2*gap+size*cubieSize, 2*gap+size*cubieSize, cubieSize, state, Face.F, colorScheme);
     }
 
-    private void paintCubeFace(Svg g, int x, int y, int size, int cubieSize, int[][] faceColors, Map<String, Color> colorScheme) {
+    private void paintCubeFace(Svg g, int x, int y, int cubieSize, byte[] state, Face face, Map<String, Color> colorScheme) {
+        Face[] faces = Face.values();
         for(int row = 0; row < size; row++) {
             for(int col = 0; col < size; col++) {
                 int tempx = x + col*cubieSize;
                 int tempy = y + row*cubieSize;
                 Rectangle rect = new Rectangle(tempx, tempy, cubieSize, cubieSize);
-                rect.setFill(colorScheme.get(Face.values()[faceColors[row][col]].toString()));
+                rect.setFill(colorScheme.get(faces[state[index(face.ordinal(), row, col)]].toString()));
                 rect.setStroke(Color.BLACK);
                 g.appendChild(rect);
             }
@@ -279,104 +407,150 @@ public class CubePuzzle extends Puzzle {
         return DEFAULT_LENGTHS[size];
     }
 
-    private int[][][] cloneImage(int[][][] image) {
-        int[][][] imageCopy = new int[image.length][image[0].length][image[0][0].length];
-        deepCopy(image, imageCopy);
-        return imageCopy;
+    /**
+     * The moves of CubeState.getScrambleSuccessors(), in the same order.
+     */
+    private CubeMove[] getScrambleMoves() {
+        List<CubeMove> moves = new ArrayList<>();
+        for(int innerSlice = 0; innerSlice <= (size / 2) - 1; innerSlice++) {
+            for(Face face : Face.values()) {
+                boolean halfOfEvenCube = size % 2 == 0 && (innerSlice == (size / 2) - 1);
+                if(face.ordinal() >= 3 && halfOfEvenCube) {
+                    continue;
+                }
+                for(int dir = 1; dir <= 3; dir++) {
+                    CubeMove move = new CubeMove(face, dir, innerSlice);
+                    if(move.toString() != null) {
+                        moves.add(move);
+                    }
+                }
+            }
+        }
+        return moves.toArray(new CubeMove[moves.size()]);
     }
 
-    private void spinCube(int[][][] image, Face face, int dir) {
-        for(int slice = 0; slice < size; slice++) {
-            slice(face, slice, dir, image);
+    /**
+     * Random turn scrambles for the big cubes are long, and building them
+     * one CubeState at a time through an AlgorithmBuilder dominates the
+     * cost of generating them. Every scramble move turns an outer layer, so
+     * two moves commute exactly when they share an axis, and within such a
+     * run of moves the only redundancy AlgorithmBuilder can find is turning
+     * the same layers of the same face twice. That lets us pick the moves
+     * with nothing but their indices, drawing from the random number
+     * generator exactly the way Puzzle.generateRandomMoves does, and only
+     * turn the cube once we are done.
+     */
+    @Override
+    public PuzzleStateAndGenerator generateRandomMoves(Random r) {
+        int[] scramble = new int[getRandomMoveCount()];
+        boolean[] available = new boolean[scrambleMoves.length];
+        // The moves scramble[runStart..length-1] all share the same axis.
+        int runStart = 0;
+        for(int length = 0; length < scramble.length; length++) {
+            Arrays.fill(available, true);
+            int move;
+            do {
+                move = -1;
+                int count = 0;
+                for(int i = 0; i < scrambleMoves.length; i++) {
+                    if(available[i] && r.nextInt(++count) == 0) {
+                        move = i;
+                    }
+                }
+                assert move >= 0 : "Ran out of moves";
+                available[move] = false;
+            } while(isRedundant(scramble, runStart, length, move));
+
+            if(length > 0 && axis(scramble[length - 1]) != axis(move)) {
+                runStart = length;
+            }
+            scramble[length] = move;
         }
+
+        CubeMove[] moves = new CubeMove[scramble.length];
+        for(int i = 0; i < scramble.length; i++) {
+            moves[i] = scrambleMoves[scramble[i]];
+        }
+        return applyToSolvedState(moves);
     }
 
-    private int[][][] normalize(int[][][] image) {
-        image = cloneImage(image);
+    /**
+     * Turns the solved cube through moves without building a CubeState
+     * for every intermediate state, and without merging anything.
+     * @return The resulting state, and moves as a scramble string.
+     */
+    protected PuzzleStateAndGenerator applyToSolvedState(CubeMove[] moves) {
+        byte[] image = getSolvedState().image;
+        String[] generator = new String[moves.length];
+        for(int i = 0; i < moves.length; i++) {
+            CubeMove move = moves[i];
+            image = turn(image, move.face, move.innerSlice, move.dir);
+            generator[i] = move.toString();
+        }
+        return new PuzzleStateAndGenerator(new CubeState(image), String.join(" ", generator));
+    }
 
-        int spins = 0;
-        while (!isNormalized(image)) {
-            assert spins < 2;
-            int[][] stickersByPiece = getStickersByPiece(image);
+    private int axis(int move) {
+        return scrambleMoves[move].face.ordinal() % 3;
+    }
 
-            int goal = 0;
-            goal |= 1 << Face.B.ordinal();
-            goal |= 1 << Face.L.ordinal();
-            goal |= 1 << Face.D.ordinal();
-            int idx = -1;
-            for (int i = 0; i < stickersByPiece.length; i++) {
-                int t = 0;
-                for (int j = 0; j < stickersByPiece[i].length; j++) {
-                    t |= 1 << stickersByPiece[i][j];
-                }
-                if (t == goal) {
-                    idx = i;
-                    break;
-                }
-            }
-            assert idx >= 0;
-            Face f = null;
-            int dir = 1;
-            if (stickersByPiece[idx][0] == Face.D.ordinal()) {
-                if (idx < 4) {
-                    // on U
-                    f = Face.F;
-                    dir = 2;
-                } else {
-                    // on D
-                    f = Face.U;
-                    switch(idx) {
-                        case 4:
-                            dir = 2; break;
-                        case 5:
-                            dir = 1; break;
-                        case 6:
-                            dir = 3; break;
-                        default:
-                            assert false;
-                    }
-                }
-            } else if (stickersByPiece[idx][1] == Face.D.ordinal()) {
-                switch (idx) {
-                    case 0: case 6:
-                        f = Face.F; break; // on R
-                    case 1: case 4:
-                        f = Face.L; break; // on F
-                    case 2: case 7:
-                        f = Face.R; break; // on B
-                    case 3: case 5:
-                        f = Face.B; break; // on L
-                    default:
-                        assert false;
-                }
-            } else {
-                switch (idx) {
-                    case 2: case 4:
-                        f = Face.F; break; // on R
-                    case 0: case 5:
-                        f = Face.L; break; // on F
-                    case 3: case 6:
-                        f = Face.R; break; // on B
-                    case 1: case 7:
-                        f = Face.B; break; // on L
-                    default:
-                        assert false;
-                }
+    private boolean isRedundant(int[] scramble, int runStart, int length, int move) {
+        if(length == 0 || axis(scramble[length - 1]) != axis(move)) {
+            return false;
+        }
+        CubeMove cm = scrambleMoves[move];
+        for(int i = runStart; i < length; i++) {
+            CubeMove previous = scrambleMoves[scramble[i]];
+            if(previous.face == cm.face && previous.innerSlice == cm.innerSlice) {
+                return true;
             }
-            spinCube(image, f, dir);
-            spins++;
         }
+        return false;
+    }
 
-        return image;
+    private byte[] normalize(byte[] image) {
+        return permute(image, normalizingRotations[findBLDCorner(image)]);
     }
 
-    private boolean isNormalized(int[][][] image) {
+    private boolean isNormalized(byte[] image) {
         // A CubeState is normalized if the BLD piece is solved
-        return image[Face.B.ordinal()][size-1][size-1] == Face.B.ordinal() &&
-                image[Face.L.ordinal()][size-1][0] == Face.L.ordinal() &&
-                image[Face.D.ordinal()][size-1][0] == Face.D.ordinal();
+        return image[index(Face.B.ordinal(), size-1, size-1)] == Face.B.ordinal() &&
+                image[index(Face.L.ordinal(), size-1, 0)] == Face.L.ordinal() &&
+                image[index(Face.D.ordinal(), size-1, 0)] == Face.D.ordinal();
     }
 
+    private int[][] getCornerStickers() {
+        int s = size - 1;
+        int u = Face.U.ordinal(), r = Face.R.ordinal(), f = Face.F.ordinal();
+        int d = Face.D.ordinal(), l = Face.L.ordinal(), b = Face.B.ordinal();
+        return new int[][] {
+            { index(u, s, s), index(r, 0, 0), index(f, 0, s) },
+            { index(u, s, 0), index(f, 0, 0), index(l, 0, s) },
+            { index(u, 0, s), index(b, 0, 0), index(r, 0, s) },
+            { index(u, 0, 0), index(l, 0, 0), index(b, 0, s) },
+
+            { index(d, 0, s), index(f, s, s), index(r, s, 0) },
+            { index(d, 0, 0), index(l, s, s), index(f, s, 0) },
+            { index(d, s, s), index(r, s, s), index(b, s, 0) },
+            { index(d, s, 0), index(b, s, s), index(l, s, 0) }
+        };
+    }
+
+    protected int[][] getStickersByPiece(byte[] img) {
+        int[][] stickersByPiece = new int[cornerStickers.length][3];
+        for(int i = 0; i < cornerStickers.length; i++) {
+            for(int j = 0; j < 3; j++) {
+                stickersByPiece[i][j] = img[cornerStickers[i][j]];
+            }
+        }
+        return stickersByPiece;
+    }
+
+    /**
+     * The stickers of the corners of an image laid out as img[face][row][col], as CubeStates used to be.
+     * @deprecated CubeStates keep their stickers in a flat array now, use getStickersByPiece(byte[]).
+     */
+    @Deprecated
     protected static int[][] getStickersByPiece(int[][][] img) {
         int s = img[0].length - 1;
         return new int[][] {
@@ -392,23 +566,52 @@ public class CubePuzzle extends Puzzle {
         };
     }
 
+    private static final int BLD_COLORS = 1 << Face.B.ordinal() | 1 << Face.L.ordinal() | 1 << Face.D.ordinal();
+
+    /**
+     * @return 3*i + j, where i is the corner the BLD piece is in
+     *         (see getStickersByPiece), and j is the sticker of that corner showing D.
+     */
+    private int findBLDCorner(byte[] image) {
+        for(int i = 0; i < cornerStickers.length; i++) {
+            int[] stickers = cornerStickers[i];
+            int colors = 1 << image[stickers[0]] | 1 << image[stickers[1]] | 1 << image[stickers[2]];
+            if(colors == BLD_COLORS) {
+                for(int j = 0; j < 3; j++) {
+                    if(image[stickers[j]] == Face.D.ordinal()) {
+                        return 3 * i + j;
+                    }
+                }
+            }
+        }
+        assert false;
+        return -1;
+    }
+
     public class CubeState extends PuzzleState {
-        private final int[][][] image;
+        private final byte[] image;
         private CubeState normalizedState = null;
 
         public CubeState() {
-            image = new int[6][size][size];
-            for(int face = 0; face < image.length; face++) {
+            image = new byte[6 * size * size];
+            for(int face = 0; face < 6; face++) {
+                Arrays.fill(image, index(face, 0, 0), index(face + 1, 0, 0), (byte) face);
+            }
+            normalizedState = this;
+        }
+
+        public CubeState(int[][][] image) {
+            this(new byte[6 * size * size]);
+            for(int face = 0; face < 6; face++) {
                 for(int j = 0; j < size; j++) {
                     for(int k = 0; k < size; k++) {
-                        image[face][j][k] = face;
+                        this.image[index(face, j, k)] = (byte) image[face][j][k];
                     }
                 }
             }
-            normalizedState = this;
         }
 
-        public CubeState(int[][][] image) {
+        private CubeState(byte[] image) {
             this.image = image;
         }
 
@@ -418,8 +621,11 @@ public class CubePuzzle extends Puzzle {
 
         public CubeState getNormalized() {
             if(normalizedState == null) {
-                int[][][] normalizedImage = normalize(image);
-                normalizedState = new CubeState(normalizedImage);
+                if(isNormalized()) {
+                    normalizedState = this;
+                } else {
+                    normalizedState = new CubeState(normalize(image));
+                }
             }
             return normalizedState;
         }
@@ -492,20 +698,30 @@ public class CubePuzzle extends Puzzle {
          * then every white sticker is described as U.
          */
         public String toFaceCube() {
-            assert size == 3;
+            Face[] faces = Face.values();
             StringBuilder state = new StringBuilder();
-            for(char f : "URFDLB".toCharArray()) {
-                Face face = Face.valueOf("" + f);
-                int[][] faceArr = image[face.ordinal()];
-                for (int[] faceState : faceArr) {
-                    for (int piece : faceState) {
-                        state.append(Face.values()[piece].toString());
-                    }
-                }
+            for(byte sticker : toFacelets()) {
+                state.append(faces[sticker].toString());
             }
             return state.toString();
         }
 
+        /**
+         * Same as toFaceCube(), but each sticker is described by the
+         * ordinal of its Face instead of a character, which is what
+         * cs.min2phase.Search.solution(byte[], ...) expects.
+         */
+        public byte[] toFacelets() {
+            assert size == 3;
+            byte[] facelets = new byte[6 * size * size];
+            int i = 0;
+            for(Face face : FACELET_ORDER) {
+                System.arraycopy(image, index(face.ordinal(), 0, 0), facelets, i, size * size);
+                i += size * size;
+            }
+            return facelets;
+        }
+
         @Override
         public Map<String, CubeState> getSuccessorsByName() {
             return getSuccessorsWithinSlice(size - 1, true);
@@ -545,11 +761,7 @@ public class CubePuzzle extends Puzzle {
                             continue;
                         }
 
-                        int[][][] imageCopy = cloneImage(image);
-                        for(int slice = outerSlice; slice <= innerSlice; slice++) {
-                            slice(face, slice, dir, imageCopy);
-                        }
-                        successors.put(moveStr, new CubeState(imageCopy));
+                        successors.put(moveStr, new CubeState(turn(image, face, innerSlice, dir)));
                     }
                 }
             }
@@ -558,13 +770,13 @@ public class CubePuzzle extends Puzzle {
         }
 
         @Override
-        public boolean equals(Object other) {
-            return Arrays.deepEquals(image, ((CubeState) other).image);
+        protected boolean equalsState(PuzzleState other) {
+            return Arrays.equals(image, ((CubeState) other).image);
         }
 
         @Override
-        public int hashCode() {
-            return Arrays.deepHashCode(image);
+        protected int computeHashCode() {
+            return Arrays.hashCode(image);
         }
 
         protected Svg drawScramble(Map<String, Color> colorScheme) {
@@ -1,8 +1,18 @@
 package org.worldcubeassociation.tnoodle.puzzle;
 
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import cs.min2phase.SearchPool;
 import cs.threephase.Edge3;
+import cs.threephase.FullCube;
 import cs.threephase.Search;
 import org.worldcubeassociation.tnoodle.scrambles.AlgorithmBuilder;
 import org.worldcubeassociation.tnoodle.scrambles.AlgorithmBuilder.MergingMode;
@@ -11,11 +21,24 @@ import org.worldcubeassociation.tnoodle.scrambles.InvalidScrambleException;
 import org.worldcubeassociation.tnoodle.scrambles.PuzzleStateAndGenerator;
 
 public class FourByFourCubePuzzle extends CubePuzzle {
-    private final ThreadLocal<Search> threePhaseSearcher;
+    private final SearchPool<Search> threePhaseSearchers;
+    private volatile Search.Profile profile = Search.Profile.BALANCED;
 
     public FourByFourCubePuzzle() {
         super(4);
-        threePhaseSearcher = ThreadLocal.withInitial(Search::new);
+        threePhaseSearchers = new SearchPool<>(Search::new);
+    }
+
+    /**
+     * Chooses the limits of the scrambler of this puzzle. BALANCED, the default, is the one for competitions,
+     * FAST gives slightly longer scrambles at half the cost and SHORT slightly shorter ones at about 3 times the cost.
+     */
+    public void setProfile(Search.Profile profile) {
+        this.profile = profile;
+    }
+
+    public Search.Profile getProfile() {
+        return profile;
     }
 
     public double getInitializationStatus() {
@@ -24,7 +47,15 @@ public class FourByFourCubePuzzle extends CubePuzzle {
 
     @Override
     public PuzzleStateAndGenerator generateRandomMoves(Random r) {
-        String scramble = threePhaseSearcher.get().randomState(r);
+        Search.Profile profile = this.profile;
+        String scramble = threePhaseSearchers.apply(searcher -> {
+            searcher.setProfile(profile);
+            return searcher.randomState(r);
+        });
+        return canonicalize(scramble);
+    }
+
+    private PuzzleStateAndGenerator canonicalize(String scramble) {
         AlgorithmBuilder ab = new AlgorithmBuilder(this, MergingMode.CANONICALIZE_MOVES);
         try {
             ab.appendAlgorithm(scramble);
@@ -33,4 +64,128 @@ public class FourByFourCubePuzzle extends CubePuzzle {
         }
         return ab.getStateAndGenerator();
     }
+
+    /**
+     * Generates count scrambles with threads sized for this machine, see
+     * generateWcaScrambles(Random, int, int, int, int).
+     */
+    public String[] generateWcaScrambles(Random r, int count) {
+        // The reduction takes most of the time of a scramble, the 3x3x3 stage about a tenth of it.
+        int cores = Runtime.getRuntime().availableProcessors();
+        return generateWcaScrambles(r, count, cores, Math.max(1, cores / 8), 1);
+    }
+
+    /**
+     * Generates count scrambles as generateWcaScramble(r) would, on a pipeline of three stages: the reduction to a
+     * 3x3x3, the 3x3x3 stage, and the canonicalization of the scramble. Each stage has its own threads and hands
+     * its results to the next one through a bounded queue, so the throughput is that of the slowest stage rather
+     * than that of all of them in a row.
+     * The random states are all drawn from r on the calling thread, so the scrambles only depend on r. They are the
+     * same as those of count calls to generateWcaScramble(r) unless a state is rejected for being too close to
+     * solved: that slot is then filled by drawing again from r once all count states have been drawn, so it and the
+     * slots after it differ from the sequential ones.
+     * The first two stages take their searchers from the same pool as generateWcaScramble(r), which holds one per
+     * available processor, and the 3x3x3 stage its min2phase searchers from a pool of the same size. As more threads
+     * than that would only wait for a searcher, each stage gets at most one thread per available processor.
+     */
+    public String[] generateWcaScrambles(Random r, int count, int reductionThreads, int threeByThreeThreads, int canonicalizationThreads) {
+        if(reductionThreads < 1 || threeByThreeThreads < 1 || canonicalizationThreads < 1) {
+            throw new IllegalArgumentException("Each stage needs at least one thread");
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        reductionThreads = Math.min(reductionThreads, cores);
+        threeByThreeThreads = Math.min(threeByThreeThreads, cores);
+        canonicalizationThreads = Math.min(canonicalizationThreads, cores);
+        Search.Profile profile = this.profile;
+        FullCube[] cubes = new FullCube[count];
+        for(int i = 0; i < count; i++) {
+            cubes[i] = new FullCube(r);
+        }
+        String[] scrambles = new String[count];
+
+        BlockingQueue<Stage<FullCube>> reduced = new ArrayBlockingQueue<>(2 * threeByThreeThreads);
+        BlockingQueue<Stage<String>> solved = new ArrayBlockingQueue<>(2 * canonicalizationThreads);
+        AtomicInteger reducing = new AtomicInteger();
+        AtomicInteger solving = new AtomicInteger();
+        AtomicInteger canonicalizing = new AtomicInteger();
+
+        int threads = reductionThreads + threeByThreeThreads + canonicalizationThreads;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread t = new Thread(runnable);
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+        try {
+            for(int i = 0; i < reductionThreads; i++) {
+                stages.submit(() -> {
+                    int index;
+                    while((index = reducing.getAndIncrement()) < count) {
+                        // The searcher goes back to the pool before waiting on the queue, so the other stage can use it.
+                        FullCube cube = cubes[index];
+                        FullCube reducedCube = threePhaseSearchers.apply(searcher -> {
+                            searcher.setProfile(profile);
+                            return searcher.reduce(cube);
+                        });
+                        reduced.put(new Stage<>(index, reducedCube));
+                    }
+                    return null;
+                });
+            }
+            for(int i = 0; i < threeByThreeThreads; i++) {
+                stages.submit(() -> {
+                    while(solving.getAndIncrement() < count) {
+                        Stage<FullCube> stage = reduced.take();
+                        String scramble = threePhaseSearchers.apply(searcher -> {
+                            searcher.setProfile(profile);
+                            return searcher.solveReduced(stage.value);
+                        });
+                        solved.put(new Stage<>(stage.index, scramble));
+                    }
+                    return null;
+                });
+            }
+            for(int i = 0; i < canonicalizationThreads; i++) {
+                stages.submit(() -> {
+                    while(canonicalizing.getAndIncrement() < count) {
+                        Stage<String> stage = solved.take();
+                        PuzzleStateAndGenerator psag = canonicalize(stage.value);
+                        if(psag.state.solveIn(wcaMinScrambleDistance - 1) == null) {
+                            scrambles[stage.index] = psag.generator;
+                        }
+                    }
+                    return null;
+                });
+            }
+            for(int i = 0; i < threads; i++) {
+                stages.take().get();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch(ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // A state too close to solved is drawn again in its own slot, as generateWcaScramble(r) does, but only now
+        // that the other states have been drawn from r.
+        for(int i = 0; i < count; i++) {
+            if(scrambles[i] == null) {
+                scrambles[i] = generateWcaScramble(r);
+            }
+        }
+        return scrambles;
+    }
+
+    private static class Stage<T> {
+        final int index;
+        final T value;
+
+        Stage(int index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
 }
@@ -55,7 +55,9 @@ public class MegaminxPuzzle extends Puzzle {
     private static final int gap = 2;
     private static final int minxRad = 30;
 
-    public MegaminxPuzzle() {}
+    public MegaminxPuzzle() {
+        indexSolvedNeighborhood = true;
+    }
 
     @Override
     public String getLongName() {
@@ -504,13 +506,12 @@ public class MegaminxPuzzle extends Puzzle {
         }
 
         @Override
-        public boolean equals(Object other) {
-            MegaminxState o = ((MegaminxState) other);
-            return Arrays.deepEquals(image, o.image);
+        protected boolean equalsState(PuzzleState other) {
+            return Arrays.deepEquals(image, ((MegaminxState) other).image);
         }
 
         @Override
-        public int hashCode() {
+        protected int computeHashCode() {
             return Arrays.deepHashCode(image);
         }
 
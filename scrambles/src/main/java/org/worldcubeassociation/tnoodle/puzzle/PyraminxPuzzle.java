@@ -470,13 +470,13 @@ public class PyraminxPuzzle extends Puzzle {
         }
 
         @Override
-        public boolean equals(Object other) {
+        protected boolean equalsState(PuzzleState other) {
             // Sure this could blow up with a cast exception, but shouldn't it? =)
             return Arrays.deepEquals(image, ((PyraminxState) other).image);
         }
 
         @Override
-        public int hashCode() {
+        protected int computeHashCode() {
             return Arrays.deepHashCode(image);
         }
 
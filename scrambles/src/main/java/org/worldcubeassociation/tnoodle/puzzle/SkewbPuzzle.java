@@ -250,13 +250,13 @@ public class SkewbPuzzle extends Puzzle {
         }
 
         @Override
-        public boolean equals(Object other) {
+        protected boolean equalsState(PuzzleState other) {
             // Sure this could blow up with a cast exception, but shouldn't it? =)
             return Arrays.deepEquals(image, ((SkewbState) other).image);
         }
 
         @Override
-        public int hashCode() {
+        protected int computeHashCode() {
             return Arrays.deepHashCode(image);
         }
     }
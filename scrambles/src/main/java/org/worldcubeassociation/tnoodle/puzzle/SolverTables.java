@@ -0,0 +1,149 @@
+package org.worldcubeassociation.tnoodle.puzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the tables of the solvers behind the 3x3x3, 4x4x4 and Square-1 scramblers within a memory budget.
+ * The solvers build their tables on first use and keep them in static fields, so a process that only scrambles
+ * once in a while holds on to them for good. A SolverTables releases the tables of a solver once it has been idle
+ * for idleMillis, and the tables of the least recently used solvers while all of them take up more than
+ * budgetBytes. A released solver builds its tables again on its next search, so the only cost of a release is
+ * that build, and tables loaded from a file are built rather than loaded again.
+ */
+public class SolverTables {
+    public enum Solver {
+        /**
+         * cs.min2phase, behind the 3x3x3 puzzles, and the last stage of the 4x4x4 and Square-1 ones.
+         */
+        TWO_PHASE(cs.min2phase.Search::tableBytes, cs.min2phase.Search::lastUsed, cs.min2phase.Search::releaseTables),
+        /**
+         * cs.threephase, the reduction of the 4x4x4 puzzles.
+         */
+        THREE_PHASE(cs.threephase.Search::tableBytes, cs.threephase.Search::lastUsed, cs.threephase.Search::releaseTables),
+        /**
+         * cs.sq12phase, behind Square-1.
+         */
+        SQUARE_ONE(cs.sq12phase.Search::tableBytes, cs.sq12phase.Search::lastUsed, cs.sq12phase.Search::releaseTables);
+
+        private final LongSupplier tableBytes;
+        private final LongSupplier lastUsed;
+        private final BooleanSupplier release;
+
+        Solver(LongSupplier tableBytes, LongSupplier lastUsed, BooleanSupplier release) {
+            this.tableBytes = tableBytes;
+            this.lastUsed = lastUsed;
+            this.release = release;
+        }
+
+        /**
+         * @return the number of bytes taken up by the tables of this solver right now.
+         */
+        public long tableBytes() {
+            return tableBytes.getAsLong();
+        }
+
+        /**
+         * @return the value of System.currentTimeMillis() when this solver was last used, or 0 if it never was.
+         */
+        public long lastUsed() {
+            return lastUsed.getAsLong();
+        }
+
+        /**
+         * Drops the tables of this solver, unless a search is running.
+         *
+         * @return whether the tables were dropped.
+         */
+        public boolean release() {
+            return release.getAsBoolean();
+        }
+    }
+
+    private final long idleMillis;
+    private final long budgetBytes;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param idleMillis how long a solver may go unused before its tables are released, Long.MAX_VALUE for ever.
+     * @param budgetBytes how many bytes the tables of all the solvers may take up, Long.MAX_VALUE for no limit.
+     */
+    public SolverTables(long idleMillis, long budgetBytes) {
+        if(idleMillis < 0 || budgetBytes < 0) {
+            throw new IllegalArgumentException("The idle time and the budget cannot be negative");
+        }
+        this.idleMillis = idleMillis;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return the number of bytes taken up by the tables of all the solvers right now.
+     */
+    public static long tableBytes() {
+        long bytes = 0;
+        for(Solver solver : Solver.values()) {
+            bytes += solver.tableBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases the tables of the solvers that have been idle for too long, then those of the least recently used
+     * solvers until the rest fit in the budget. Solvers that are searching are skipped.
+     *
+     * @return the solvers whose tables were released.
+     */
+    public List<Solver> releaseTables() {
+        long now = System.currentTimeMillis();
+        Solver[] solvers = Solver.values();
+        long[] lastUsed = new long[solvers.length];
+        for(int i = 0; i < solvers.length; i++) {
+            lastUsed[solvers[i].ordinal()] = solvers[i].lastUsed();
+        }
+        Arrays.sort(solvers, Comparator.comparingLong(solver -> lastUsed[solver.ordinal()]));
+
+        long bytes = tableBytes();
+        List<Solver> released = new ArrayList<>();
+        for(Solver solver : solvers) {
+            long solverBytes = solver.tableBytes();
+            if(solverBytes == 0) {
+                continue;
+            }
+            boolean idle = now - lastUsed[solver.ordinal()] >= idleMillis;
+            if((idle || bytes > budgetBytes) && solver.release()) {
+                bytes -= solverBytes - solver.tableBytes();
+                released.add(solver);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Calls releaseTables() every periodMillis on a daemon thread, until stop() is called.
+     */
+    public synchronized void start(long periodMillis) {
+        if(executor != null) {
+            throw new IllegalStateException("Already started");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "SolverTables");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::releaseTables, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if(executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.worldcubeassociation.tnoodle.svglite.Rectangle;
 
 import java.util.*;
 
+import cs.min2phase.SearchPool;
 import cs.sq12phase.FullCube;
 import cs.sq12phase.Search;
 
@@ -17,19 +18,23 @@ public class SquareOnePuzzle extends Puzzle {
 
     private static final int radius = 32;
 
-    private final ThreadLocal<Search> twoPhaseSearcher;
+    private final SearchPool<Search> twoPhaseSearchers;
 
     public SquareOnePuzzle() {
         wcaMinScrambleDistance = 11;
 
-        twoPhaseSearcher = ThreadLocal.withInitial(Search::new);
+        twoPhaseSearchers = new SearchPool<>(Search::new);
+    }
+
+    public double getInitializationStatus() {
+        return Search.initStatus();
     }
 
     @Override
     public PuzzleStateAndGenerator generateRandomMoves(Random r) {
         FullCube randomState = FullCube.randomCube(r);
 
-        String scramble = twoPhaseSearcher.get().solution(randomState, Search.INVERSE_SOLUTION).trim();
+        String scramble = twoPhaseSearchers.apply(searcher -> searcher.solution(randomState, Search.INVERSE_SOLUTION)).trim();
         PuzzleState state;
         try {
             state = getSolvedState().applyAlgorithm(scramble);
@@ -215,52 +220,90 @@ public class SquareOnePuzzle extends Puzzle {
         wcaCostsByMove.put("/", 1);
     }
 
+    private static final long LAYER = 0xffffffffffffL;
+    private static final long HALF_LAYER = 0xffffffL;
+
+    // The number of each piece in cs.sq12phase.FullCube.
+    private static final int[] fullCubePieces = new int[]{3, 2, 1, 0, 7, 6, 5, 4, 0xa, 0xb, 8, 9, 0xe, 0xf, 0xc, 0xd};
+
+    private static long packLayer(int[] pieces, int first) {
+        long layer = 0;
+        for(int i = 0; i < 12; i++) {
+            layer = layer << 4 | pieces[first + i];
+        }
+        return layer;
+    }
+
+    private static long rotateLayer(long layer, int amount) {
+        int shift = ((-amount % 12) + 12) % 12 * 4;
+        return (layer << shift | layer >>> (48 - shift)) & LAYER;
+    }
+
+    /**
+     * @return the half of a layer starting at the given piece, as one of the fields of a FullCube, which puts
+     *         the pieces in the opposite order.
+     */
+    private static int toFullCubeHalfLayer(long layer, int first) {
+        int half = 0;
+        for(int i = 0; i < 6; i++) {
+            half |= fullCubePieces[(int) (layer >>> (11 - first - i) * 4) & 0xf] << i * 4;
+        }
+        return half;
+    }
+
     public class SquareOneState extends PuzzleState {
         boolean sliceSolved;
-        int[] pieces;
+        // The 12 pieces of each layer a nibble each, the first of them in the highest nibble.
+        final long top;
+        final long bottom;
 
         public SquareOneState() {
-            sliceSolved = true;
-            pieces = new int[]{ 0, 0, 1, 2, 2, 3, 4, 4, 5, 6, 6, 7, 8, 9, 9, 10, 11, 11, 12, 13, 13, 14, 15, 15 }; //piece array
+            this(true, new int[]{ 0, 0, 1, 2, 2, 3, 4, 4, 5, 6, 6, 7, 8, 9, 9, 10, 11, 11, 12, 13, 13, 14, 15, 15 }); //piece array
         }
 
         public SquareOneState(boolean sliceSolved, int[] pieces) {
+            this(sliceSolved, packLayer(pieces, 0), packLayer(pieces, 12));
+        }
+
+        private SquareOneState(boolean sliceSolved, long top, long bottom) {
             this.sliceSolved = sliceSolved;
-            this.pieces = pieces;
+            this.top = top;
+            this.bottom = bottom;
         }
 
-        FullCube toFullCube() {
-            int[] map1 = new int[]{3, 2, 1, 0, 7, 6, 5, 4, 0xa, 0xb, 8, 9, 0xe, 0xf, 0xc, 0xd};
-            int[] map2 = new int[]{5,4,3,2,1,0,11,10,9,8,7,6,17,16,15,14,13,12,23,22,21,20,19,18};
-            FullCube f = new FullCube();
-            for (int i=0; i<24; i++) {
-                f.setPiece(map2[i], map1[pieces[i]]);
-            }
-            f.setPiece(24, sliceSolved ? 0 : 1);
-            return f;
+        private int pieceAt(int i) {
+            return (int) ((i < 12 ? top : bottom) >>> (11 - i % 12) * 4) & 0xf;
         }
 
-        private int[] doSlash() {
-            int[] newPieces = cloneArr(pieces);
-            for(int i = 0; i < 6; i++) {
-                int c = newPieces[i+12];
-                newPieces[i+12] = newPieces[i+6];
-                newPieces[i+6] = c;
+        int[] getPieces() {
+            int[] pieces = new int[24];
+            for(int i = 0; i < 24; i++) {
+                pieces[i] = pieceAt(i);
             }
-            return newPieces;
+            return pieces;
+        }
+
+        FullCube toFullCube() {
+            return new FullCube(toFullCubeHalfLayer(top, 0), toFullCubeHalfLayer(top, 6),
+                    toFullCubeHalfLayer(bottom, 0), toFullCubeHalfLayer(bottom, 6), sliceSolved ? 0 : 1);
+        }
+
+        private SquareOneState doSlash() {
+            // Swaps the last 6 pieces of the top layer with the first 6 of the bottom layer.
+            return new SquareOneState(!sliceSolved, top & ~HALF_LAYER | bottom >>> 24, bottom & HALF_LAYER | (top & HALF_LAYER) << 24);
         }
 
         private boolean canSlash() {
-            if(pieces[0] == pieces[11]) {
+            if(pieceAt(0) == pieceAt(11)) {
                 return false;
             }
-            if(pieces[6] == pieces[5]) {
+            if(pieceAt(6) == pieceAt(5)) {
                 return false;
             }
-            if(pieces[12] == pieces[23]) {
+            if(pieceAt(12) == pieceAt(23)) {
                 return false;
             }
-            if(pieces[12+6] == pieces[(12+6)-1]) {
+            if(pieceAt(12+6) == pieceAt((12+6)-1)) {
                 return false;
             }
             return true;
@@ -270,25 +313,10 @@ public class SquareOnePuzzle extends Puzzle {
          *
          * @param top Amount to rotate top
          * @param bottom Amount to rotate bottom
-         * @return A copy of pieces with (top, bottom) applied to it
+         * @return A copy of this state with (top, bottom) applied to it
          */
-        private int[] doRotateTopAndBottom(int top, int bottom) {
-            top = ((-top % 12) + 12) % 12;
-            int[] newPieces = cloneArr(pieces);
-            int[] t = new int[12];
-            System.arraycopy(newPieces, 0, t, 0, 12);
-            for(int i = 0; i < 12; i++) {
-                newPieces[i] = t[(top + i) % 12];
-            }
-
-            bottom = ((-bottom % 12) + 12) % 12;
-
-            System.arraycopy(newPieces, 12, t, 0, 12);
-            for(int i = 0; i < 12; i++) {
-                newPieces[i+12] = t[(bottom + i) % 12];
-            }
-
-            return newPieces;
+        private SquareOneState doRotateTopAndBottom(int top, int bottom) {
+            return new SquareOneState(sliceSolved, rotateLayer(this.top, top), rotateLayer(this.bottom, bottom));
         }
 
         public int getMoveCost(String move) {
@@ -301,6 +329,22 @@ public class SquareOnePuzzle extends Puzzle {
             return wcaCostsByMove.get(move);
         }
 
+        @Override
+        public SquareOneState apply(String move) throws InvalidMoveException {
+            // Applying a scramble goes through here for every move, so we parse
+            // the move instead of building all ~140 successors to keep one.
+            if(!wcaCostsByMove.containsKey(move) || move.equals("/") && !canSlash()) {
+                throw new InvalidMoveException("Unrecognized turn " + move);
+            }
+            if(move.equals("/")) {
+                return doSlash();
+            }
+            int comma = move.indexOf(',');
+            int top = Integer.parseInt(move.substring(1, comma));
+            int bottom = Integer.parseInt(move.substring(comma + 1, move.length() - 1));
+            return doRotateTopAndBottom(top, bottom);
+        }
+
         @Override
         public Map<String, SquareOneState> getScrambleSuccessors() {
             Map<String, SquareOneState> successors = getSuccessorsByName();
@@ -324,13 +368,12 @@ public class SquareOnePuzzle extends Puzzle {
                         // No use doing nothing =)
                         continue;
                     }
-                    int[] newPieces = doRotateTopAndBottom(top, bottom);
                     String turn = "(" + top + "," + bottom + ")";
-                    successors.put(turn, new SquareOneState(sliceSolved, newPieces));
+                    successors.put(turn, doRotateTopAndBottom(top, bottom));
                 }
             }
             if(canSlash()) {
-                successors.put("/", new SquareOneState(!sliceSolved, doSlash()));
+                successors.put("/", doSlash());
             }
             return successors;
         }
@@ -374,7 +417,7 @@ public class SquareOnePuzzle extends Puzzle {
             }
 
             FullCube f = this.toFullCube();
-            String scramble = twoPhaseSearcher.get().solutionOpt(f, n);
+            String scramble = twoPhaseSearchers.apply(searcher -> searcher.solutionOpt(f, n));
             return scramble == null ? null : scramble.trim();
         }
 
@@ -414,20 +457,26 @@ public class SquareOnePuzzle extends Puzzle {
         }
 
         @Override
-        public boolean equals(Object other) {
+        protected boolean equalsState(PuzzleState other) {
             SquareOneState o = ((SquareOneState) other);
-            return Arrays.equals(pieces, o.pieces) && sliceSolved == o.sliceSolved;
+            return top == o.top && bottom == o.bottom && sliceSolved == o.sliceSolved;
         }
 
         @Override
-        public int hashCode() {
-            return Arrays.hashCode(pieces) ^ (sliceSolved ? 1 : 0);
+        protected int computeHashCode() {
+            // Same as Arrays.hashCode() of the pieces, which keeps the order of states in hash maps.
+            int h = 1;
+            for(int i = 0; i < 24; i++) {
+                h = 31 * h + pieceAt(i);
+            }
+            return h ^ (sliceSolved ? 1 : 0);
         }
 
         @Override
         protected Svg drawScramble(Map<String, Color> colorSchemeMap) {
             Svg g = new Svg(getPreferredSize());
             g.setStroke(2, 10, "round");
+            int[] pieces = getPieces();
 
             String faces = "LBRFUD";
             Color[] colorScheme = new Color[faces.length()];
@@ -480,7 +529,7 @@ public class SquareOnePuzzle extends Puzzle {
         }
 
         public String toString() {
-            return "sliceSolved: " + sliceSolved + " " + Arrays.toString(pieces);
+            return "sliceSolved: " + sliceSolved + " " + Arrays.toString(getPieces());
         }
 
     }
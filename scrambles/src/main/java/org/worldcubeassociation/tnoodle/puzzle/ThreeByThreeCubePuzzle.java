@@ -3,11 +3,9 @@ package org.worldcubeassociation.tnoodle.puzzle;
 import java.util.Random;
 import java.util.logging.Logger;
 
-import org.worldcubeassociation.tnoodle.scrambles.AlgorithmBuilder;
-import org.worldcubeassociation.tnoodle.scrambles.AlgorithmBuilder.MergingMode;
-import org.worldcubeassociation.tnoodle.scrambles.InvalidMoveException;
 import org.worldcubeassociation.tnoodle.scrambles.InvalidScrambleException;
 import org.worldcubeassociation.tnoodle.scrambles.PuzzleStateAndGenerator;
+import cs.min2phase.SearchPool;
 import cs.min2phase.SearchWCA;
 import cs.min2phase.Tools;
 
@@ -17,14 +15,31 @@ public class ThreeByThreeCubePuzzle extends CubePuzzle {
     private static final int THREE_BY_THREE_TIMEMIN = 200; //milliseconds
     private static final int THREE_BY_THREE_TIMEOUT = 60*1000; //milliseconds
 
-    private final ThreadLocal<SearchWCA> twoPhaseSearcher;
+    private final SearchPool<SearchWCA> twoPhaseSearchers;
+    // Indexed the same way as cs.min2phase.Search.solutionMoves()
+    private final CubeMove[] min2phaseMoves;
+    private volatile long scrambleTimeBudget = THREE_BY_THREE_TIMEMIN;
     public ThreeByThreeCubePuzzle() {
         super(3);
         String newMinDistance = System.getenv("TNOODLE_333_MIN_DISTANCE");
         if(newMinDistance != null) {
             wcaMinScrambleDistance = Integer.parseInt(newMinDistance);
         }
-        twoPhaseSearcher = ThreadLocal.withInitial(SearchWCA::new);
+        twoPhaseSearchers = new SearchPool<>(SearchWCA::new);
+
+        Face[] min2phaseAxes = { Face.U, Face.R, Face.F, Face.D, Face.L, Face.B };
+        min2phaseMoves = new CubeMove[3 * min2phaseAxes.length];
+        for(int move = 0; move < min2phaseMoves.length; move++) {
+            min2phaseMoves[move] = new CubeMove(min2phaseAxes[move / 3], move % 3 + 1);
+        }
+    }
+
+    /**
+     * Sets how long generateRandomMoves() keeps looking for shorter scrambles.
+     * If it has not found any by then, it settles for the first one it finds.
+     */
+    public void setScrambleTimeBudget(long millis) {
+        scrambleTimeBudget = millis;
     }
 
     @Override
@@ -38,7 +53,7 @@ public class ThreeByThreeCubePuzzle extends CubePuzzle {
             // TODO - apparently min2phase can't solve the solved cube
             return "";
         }
-        String solution = twoPhaseSearcher.get().solution(cs.toFaceCube(), n, THREE_BY_THREE_TIMEOUT, 0, 0, firstAxisRestriction, lastAxisRestriction).trim();
+        String solution = twoPhaseSearchers.apply(searcher -> searcher.solution(cs.toFacelets(), n, THREE_BY_THREE_TIMEOUT, 0, 0, firstAxisRestriction, lastAxisRestriction)).trim();
         if("Error 7".equals(solution)) {
             // No solution exists for given depth
             return null;
@@ -52,16 +67,33 @@ public class ThreeByThreeCubePuzzle extends CubePuzzle {
     }
 
     public PuzzleStateAndGenerator generateRandomMoves(Random r, String firstAxisRestriction, String lastAxisRestriction) {
-        String randomState = Tools.randomCube(r);
-        String scramble = twoPhaseSearcher.get().solution(randomState, THREE_BY_THREE_MAX_SCRAMBLE_LENGTH, THREE_BY_THREE_TIMEOUT, THREE_BY_THREE_TIMEMIN, SearchWCA.INVERSE_SOLUTION, firstAxisRestriction, lastAxisRestriction).trim();
-
-        AlgorithmBuilder ab = new AlgorithmBuilder(this, MergingMode.CANONICALIZE_MOVES);
+        byte[] randomState = Tools.randomFacelets(r);
+        String scramble;
+        int[] solutionMoves;
+        SearchWCA searcher = twoPhaseSearchers.acquire();
         try {
-            ab.appendAlgorithm(scramble);
-        } catch (InvalidMoveException e) {
-            throw new RuntimeException(new InvalidScrambleException(scramble, e));
+            long deadline = System.currentTimeMillis() + scrambleTimeBudget;
+            scramble = searcher.solveUntil(randomState, THREE_BY_THREE_MAX_SCRAMBLE_LENGTH, deadline, SearchWCA.INVERSE_SOLUTION, null, firstAxisRestriction, lastAxisRestriction);
+            if("Error 8".equals(scramble)) {
+                // Nothing found within the budget, so pick the search up where
+                // the deadline stopped it and settle for the first solution.
+                scramble = searcher.next(THREE_BY_THREE_TIMEOUT, 0, SearchWCA.INVERSE_SOLUTION);
+            }
+            solutionMoves = searcher.solutionMoves();
+        } finally {
+            twoPhaseSearchers.release(searcher);
+        }
+        if(solutionMoves == null) {
+            throw new RuntimeException(new InvalidScrambleException(scramble.trim()));
+        }
+
+        // min2phase never puts two turns of the same face next to each
+        // other, so there is nothing for an AlgorithmBuilder to merge.
+        CubeMove[] moves = new CubeMove[solutionMoves.length];
+        for(int i = 0; i < moves.length; i++) {
+            moves[i] = min2phaseMoves[solutionMoves[i]];
         }
-        return ab.getStateAndGenerator();
+        return applyToSolvedState(moves);
     }
     @Override
     public PuzzleStateAndGenerator generateRandomMoves(Random r) {
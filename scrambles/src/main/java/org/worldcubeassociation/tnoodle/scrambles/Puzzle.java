@@ -34,6 +34,15 @@ public abstract class Puzzle {
     private static final Logger l = Logger.getLogger(Puzzle.class.getName());
     protected int wcaMinScrambleDistance = 2;
 
+    /**
+     * Puzzles that rely on the generic solveIn to filter their scrambles can
+     * set this to remember every state closer to solved than
+     * wcaMinScrambleDistance, rather than searching from the solved state
+     * again for every scramble.
+     */
+    protected boolean indexSolvedNeighborhood = false;
+    private volatile Map<PuzzleState, Integer> solvedNeighborhood = null;
+
     /**
      * Returns a String describing this Scrambler
      * appropriate for use in a url. This shouldn't contain any periods.
@@ -350,6 +359,10 @@ public abstract class Puzzle {
             return "";
         }
 
+        if(indexSolvedNeighborhood && n <= wcaMinScrambleDistance - 1) {
+            return solveInSolvedNeighborhood(ps, n);
+        }
+
         Map<PuzzleState, Integer> seenSolved = new HashMap<>();
         SortedBuckets<PuzzleState> fringeSolved = new SortedBuckets<>();
         Map<PuzzleState, Integer> seenScrambled = new HashMap<>();
@@ -559,7 +572,85 @@ public abstract class Puzzle {
         return solution.toString();
     }
 
+    /**
+     * @return A map from every normalized state at most
+     * wcaMinScrambleDistance - 1 away from solved to its distance from solved.
+     */
+    private Map<PuzzleState, Integer> getSolvedNeighborhood() {
+        Map<PuzzleState, Integer> neighborhood = solvedNeighborhood;
+        if(neighborhood != null) {
+            return neighborhood;
+        }
+
+        // Two threads may end up building this at the same time, which is
+        // wasteful but harmless, as they will build the same map.
+        int radius = wcaMinScrambleDistance - 1;
+        neighborhood = new HashMap<>();
+        SortedBuckets<PuzzleState> fringe = new SortedBuckets<>();
+        PuzzleState solvedNormalized = getSolvedState().getNormalized();
+        neighborhood.put(solvedNormalized, 0);
+        fringe.add(solvedNormalized, 0);
+        while(!fringe.isEmpty()) {
+            int distance = fringe.smallestValue();
+            PuzzleState node = fringe.pop();
+            if(distance > neighborhood.get(node)) {
+                // We already expanded this node through a shorter path.
+                continue;
+            }
+            Map<? extends PuzzleState, String> movesByState = node.getCanonicalMovesByState();
+            for(PuzzleState next : movesByState.keySet()) {
+                int nextDistance = distance + node.getMoveCost(movesByState.get(next));
+                if(nextDistance > radius) {
+                    continue;
+                }
+                next = next.getNormalized();
+                Integer seenDistance = neighborhood.get(next);
+                if(seenDistance == null || nextDistance < seenDistance) {
+                    neighborhood.put(next, nextDistance);
+                    fringe.add(next, nextDistance);
+                }
+            }
+        }
+
+        solvedNeighborhood = neighborhood;
+        return neighborhood;
+    }
+
+    private String solveInSolvedNeighborhood(PuzzleState ps, int n) {
+        Map<PuzzleState, Integer> neighborhood = getSolvedNeighborhood();
+        Integer distanceFromSolved = neighborhood.get(ps.getNormalized());
+        if(distanceFromSolved == null || distanceFromSolved > n) {
+            return null;
+        }
+
+        // Walk downhill towards the solved state, along moves that are on a
+        // shortest path, so the solution stays optimal when moves cost more than 1.
+        AlgorithmBuilder solution = new AlgorithmBuilder(MergingMode.CANONICALIZE_MOVES, ps);
+        PuzzleState state = ps;
+    outer:
+        while(distanceFromSolved > 0) {
+            for(Entry<? extends PuzzleState, String> next : state.getCanonicalMovesByState().entrySet()) {
+                Integer newDistanceFromSolved = neighborhood.get(next.getKey().getNormalized());
+                if(newDistanceFromSolved != null && newDistanceFromSolved == distanceFromSolved - state.getMoveCost(next.getValue())) {
+                    state = next.getKey();
+                    distanceFromSolved = newDistanceFromSolved;
+                    try {
+                        solution.appendMove(next.getValue());
+                    } catch(InvalidMoveException e) {
+                        throw new RuntimeException(e);
+                    }
+                    continue outer;
+                }
+            }
+            throw new RuntimeException("No move of " + state + " gets closer to solved");
+        }
+
+        return solution.toString();
+    }
+
     public abstract class PuzzleState {
+        private int hash = 0;
+
         public PuzzleState() {}
 
         /**
@@ -707,11 +798,46 @@ public abstract class Puzzle {
          * Returns true if this state is equal to other.
          * Note that a puzzle like 4x4 must compare all orientations of the puzzle, otherwise
          * generateRandomMoves() will allow for trivial sequences of turns like Lw Rw'.
+         * By default, states with different hashes are different, and equalsState() compares the others.
          * @param other The other object to check for equality
          * @return true if this is equal to other
          */
-        public abstract boolean equals(Object other);
-        public abstract int hashCode();
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            PuzzleState o = (PuzzleState) other;
+            return hashCode() == o.hashCode() && equalsState(o);
+        }
+
+        /**
+         * Compares this state to a different one with the same hash, for equals().
+         * @param other The other state, of the same class as this one
+         * @return true if this is equal to other
+         */
+        protected boolean equalsState(PuzzleState other) {
+            return false;
+        }
+
+        /**
+         * PuzzleStates never change once built, and are used as keys of
+         * HashMaps all over the place, so hashCode() only calls
+         * computeHashCode() once.
+         */
+        @Override
+        public int hashCode() {
+            int h = hash;
+            if(h == 0) {
+                h = computeHashCode();
+                hash = h;
+            }
+            return h;
+        }
+
+        protected int computeHashCode() {
+            return System.identityHashCode(this);
+        }
 
         public boolean equalsNormalized(PuzzleState other) {
             return getNormalized().equals(other.getNormalized());
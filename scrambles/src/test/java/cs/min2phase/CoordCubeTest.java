@@ -0,0 +1,45 @@
+package cs.min2phase;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoordCubeTest {
+    @Test
+    public void testParallelInitMatchesSequentialInit() {
+        try {
+            for (Search.TableProfile profile : Search.TableProfile.values()) {
+                Search.setTableProfile(profile);
+
+                Search.setParallelInit(false);
+                int[][] sequential = buildPruningTables();
+                Search.setParallelInit(true);
+                int[][] parallel = buildPruningTables();
+
+                for (int i = 0; i < sequential.length; i++) {
+                    assertArrayEquals(sequential[i], parallel[i], profile + " table " + i);
+                }
+            }
+        } finally {
+            Search.setTableProfile(Search.TableProfile.FAST);
+            Search.setParallelInit(Runtime.getRuntime().availableProcessors() > 1);
+        }
+    }
+
+    private static int[][] buildPruningTables() {
+        assertTrue(Search.releaseTables());
+        Search.init();
+        int[][] tables = {
+            CoordCube.UDSliceTwistPrun,
+            CoordCube.UDSliceFlipPrun,
+            CoordCube.TwistFlipPrun,
+            CoordCube.MCPermPrun,
+            CoordCube.EPermCCombPPrun,
+        };
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = tables[i] == null ? null : tables[i].clone();
+        }
+        return tables;
+    }
+}
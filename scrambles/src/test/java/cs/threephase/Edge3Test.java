@@ -0,0 +1,28 @@
+package cs.threephase;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Edge3Test {
+    @Test
+    public void testParallelInitMatchesSequentialInit() {
+        try {
+            Search.setParallelInit(false);
+            int[] sequential = buildPruningTable();
+            Search.setParallelInit(true);
+            int[] parallel = buildPruningTable();
+
+            assertArrayEquals(sequential, parallel);
+        } finally {
+            Search.setParallelInit(Runtime.getRuntime().availableProcessors() > 1);
+        }
+    }
+
+    private static int[] buildPruningTable() {
+        assertTrue(Search.releaseTables());
+        Search.init();
+        return Edge3.eprun.clone();
+    }
+}
@@ -0,0 +1,37 @@
+package cs.threephase;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class FullCubeTest {
+    @Test
+    public void testTo333CubiesMatchesTo333Facelet() {
+        // min2phase solves the same 3x3x3 the same way, so the cubies describe
+        // the cube the facelets do exactly when both give the same solution.
+        Random r = new Random(2023);
+        Search searcher = new Search();
+        searcher.setProfile(Search.Profile.FAST);
+        cs.min2phase.Search search333 = new cs.min2phase.Search();
+        byte[] cp = new byte[8];
+        byte[] co = new byte[8];
+        byte[] ep = new byte[12];
+        byte[] eo = new byte[12];
+        for (int i = 0; i < 10; i++) {
+            FullCube reduced = searcher.reduce(new FullCube(r));
+
+            String solution = search333.solution(reduced.to333Facelet(), 21, 100000, 0, 0);
+            assertFalse(solution.startsWith("Error"), solution);
+            int[] faceletMoves = search333.solutionMoves();
+
+            reduced.to333Cubies(cp, co, ep, eo);
+            int[] cubieMoves = search333.solveCubies(cp, co, ep, eo, 21, 100000, 0, 0);
+            assertArrayEquals(faceletMoves, cubieMoves, "Cube " + i);
+            assertEquals(solution.trim().split("\\s+").length, cubieMoves.length);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.worldcubeassociation.tnoodle.puzzle;
+
+import org.worldcubeassociation.tnoodle.scrambles.AlgorithmBuilder;
+import org.worldcubeassociation.tnoodle.scrambles.InvalidMoveException;
+import org.worldcubeassociation.tnoodle.scrambles.PuzzleStateAndGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class CubePuzzleTest {
+    private static final Random r = new Random();
+
+    @Test
+    public void testRandomTurnScrambles() throws InvalidMoveException {
+        for (int size = 2; size <= 7; size++) {
+            CubePuzzle cube = new CubePuzzle(size);
+            for (int i = 0; i < 10; i++) {
+                PuzzleStateAndGenerator psag = cube.generateRandomMoves(r);
+                AlgorithmBuilder ab = new AlgorithmBuilder(cube, AlgorithmBuilder.MergingMode.NO_MERGING);
+                for (String move : AlgorithmBuilder.splitAlgorithm(psag.generator)) {
+                    assertFalse(ab.isRedundant(move), move + " is redundant in " + psag.generator);
+                    ab.appendMove(move);
+                }
+                assertEquals(psag.generator, ab.toString());
+                assertEquals(ab.getState(), psag.state);
+            }
+        }
+    }
+
+    @Test
+    public void testAgainstNestedImage() throws InvalidMoveException {
+        // CubeStates used to be int[face][row][col] images, turned one slice at a time.
+        // The flat images must still compare, normalize and hash the same way.
+        int SCRAMBLE_COUNT = 20;
+        int SCRAMBLE_LENGTH = 30;
+        for (int size = 2; size <= 7; size++) {
+            CubePuzzle cube = new CubePuzzle(size);
+            List<CubePuzzle.CubeState> states = new ArrayList<>();
+            List<int[][][]> images = new ArrayList<>();
+            for (int i = 0; i < SCRAMBLE_COUNT; i++) {
+                CubePuzzle.CubeState state = cube.getSolvedState();
+                int[][][] image = solvedImage(size);
+                for (int j = 0; j < SCRAMBLE_LENGTH; j++) {
+                    CubePuzzle.Face face = CubePuzzle.Face.values()[r.nextInt(6)];
+                    int dir = 1 + r.nextInt(3);
+                    int innerSlice = r.nextInt(size);
+                    String move = cube.new CubeMove(face, dir, innerSlice).toString();
+                    if (move == null) {
+                        continue;
+                    }
+                    state = (CubePuzzle.CubeState) state.apply(move);
+                    for (int slice = 0; slice <= innerSlice; slice++) {
+                        slice(face, slice, dir, image);
+                    }
+
+                    CubePuzzle.CubeState expected = cube.new CubeState(image);
+                    assertEquals(expected, state);
+                    assertEquals(expected.hashCode(), state.hashCode());
+                    assertEquals(cube.new CubeState(normalize(image)), state.getNormalized());
+                }
+                states.add(state);
+                images.add(image);
+            }
+            // Half turns of the same face make sure some of the states are equal.
+            states.add((CubePuzzle.CubeState) states.get(0).apply("U2").apply("U2"));
+            images.add(images.get(0));
+
+            for (int i = 0; i < states.size(); i++) {
+                for (int j = 0; j < states.size(); j++) {
+                    boolean equal = Arrays.deepEquals(images.get(i), images.get(j));
+                    assertEquals(equal, states.get(i).equals(states.get(j)));
+                    if (equal) {
+                        assertEquals(states.get(i).hashCode(), states.get(j).hashCode());
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[][][] solvedImage(int size) {
+        int[][][] image = new int[6][size][size];
+        for (int face = 0; face < 6; face++) {
+            for (int[] row : image[face]) {
+                Arrays.fill(row, face);
+            }
+        }
+        return image;
+    }
+
+    private static void swap(int[][][] image,
+            int f1, int x1, int y1,
+            int f2, int x2, int y2,
+            int f3, int x3, int y3,
+            int f4, int x4, int y4,
+            int dir) {
+        for (int i = 0; i < dir; i++) {
+            int temp = image[f1][x1][y1];
+            image[f1][x1][y1] = image[f2][x2][y2];
+            image[f2][x2][y2] = image[f3][x3][y3];
+            image[f3][x3][y3] = image[f4][x4][y4];
+            image[f4][x4][y4] = temp;
+        }
+    }
+
+    private static void slice(CubePuzzle.Face face, int slice, int dir, int[][][] image) {
+        int size = image[0].length;
+        CubePuzzle.Face sface = face;
+        int sslice = slice;
+        int sdir = dir;
+        if (face != CubePuzzle.Face.L && face != CubePuzzle.Face.D && face != CubePuzzle.Face.B) {
+            sface = face.oppositeFace();
+            sslice = size - 1 - slice;
+            sdir = 4 - dir;
+        }
+        int u = CubePuzzle.Face.U.ordinal(), r = CubePuzzle.Face.R.ordinal(), f = CubePuzzle.Face.F.ordinal();
+        int d = CubePuzzle.Face.D.ordinal(), l = CubePuzzle.Face.L.ordinal(), b = CubePuzzle.Face.B.ordinal();
+        for (int j = 0; j < size; j++) {
+            if (sface == CubePuzzle.Face.L) {
+                swap(image, u, j, sslice, b, size-1-j, size-1-sslice, d, j, sslice, f, j, sslice, sdir);
+            } else if (sface == CubePuzzle.Face.D) {
+                swap(image, l, size-1-sslice, j, b, size-1-sslice, j, r, size-1-sslice, j, f, size-1-sslice, j, sdir);
+            } else {
+                swap(image, u, sslice, j, r, j, size-1-sslice, d, size-1-sslice, size-1-j, l, size-1-j, sslice, sdir);
+            }
+        }
+        if (slice == 0 || slice == size - 1) {
+            int faceIndex;
+            if (slice == 0) {
+                faceIndex = face.ordinal();
+                sdir = 4 - dir;
+            } else {
+                faceIndex = face.oppositeFace().ordinal();
+                sdir = dir;
+            }
+            for (int j = 0; j < (size+1)/2; j++) {
+                for (int k = 0; k < size/2; k++) {
+                    swap(image,
+                            faceIndex, j, k,
+                            faceIndex, k, size-1-j,
+                            faceIndex, size-1-j, size-1-k,
+                            faceIndex, size-1-k, j,
+                            sdir);
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns the whole cube until the BLD corner is solved, trying all 24 orientations.
+     */
+    private static int[][][] normalize(int[][][] image) {
+        int size = image[0].length;
+        CubePuzzle.Face[] axes = { CubePuzzle.Face.R, CubePuzzle.Face.U, CubePuzzle.Face.F };
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                for (int z = 0; z < 4; z++) {
+                    int[][][] rotated = new int[6][size][];
+                    for (int face = 0; face < 6; face++) {
+                        for (int row = 0; row < size; row++) {
+                            rotated[face][row] = image[face][row].clone();
+                        }
+                    }
+                    int[] turns = { x, y, z };
+                    for (int axis = 0; axis < 3; axis++) {
+                        for (int slice = 0; slice < size && turns[axis] > 0; slice++) {
+                            slice(axes[axis], slice, turns[axis], rotated);
+                        }
+                    }
+                    int[][] stickersByPiece = CubePuzzle.getStickersByPiece(rotated);
+                    if (stickersByPiece[7][0] == CubePuzzle.Face.D.ordinal()
+                            && stickersByPiece[7][1] == CubePuzzle.Face.B.ordinal()
+                            && stickersByPiece[7][2] == CubePuzzle.Face.L.ordinal()) {
+                        return rotated;
+                    }
+                }
+            }
+        }
+        return fail("No rotation solves the BLD corner");
+    }
+}
@@ -0,0 +1,104 @@
+package org.worldcubeassociation.tnoodle.puzzle;
+
+import cs.threephase.Search;
+import org.worldcubeassociation.tnoodle.scrambles.AlgorithmBuilder;
+import org.worldcubeassociation.tnoodle.scrambles.InvalidMoveException;
+import org.worldcubeassociation.tnoodle.scrambles.InvalidScrambleException;
+import org.worldcubeassociation.tnoodle.scrambles.Puzzle;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FourByFourCubePuzzleTest {
+    private static final Logger l = Logger.getLogger(FourByFourCubePuzzleTest.class.getName());
+
+    private static final Random r = new Random();
+
+    @Test
+    public void testParallelSearch() {
+        int FOUR_BY_FOUR_SCRAMBLE_COUNT = 5;
+
+        Search.init();
+        Search sequential = new Search();
+        Search parallel = new Search();
+        parallel.setParallelism(4);
+        long seed = r.nextLong();
+        Random r1 = new Random(seed);
+        Random r2 = new Random(seed);
+        for (int i = 0; i < FOUR_BY_FOUR_SCRAMBLE_COUNT; i++) {
+            assertEquals(sequential.randomState(r1), parallel.randomState(r2));
+        }
+    }
+
+    @Test
+    public void testRandomStateMatchesBaseline() {
+        // Generated with the seed below before the searcher was parallelized
+        // and its phase 1 solutions kept in a heap, neither of which may
+        // change the scrambles.
+        String[] expected = {
+            "F'  R2  U'  L2  U   L2  U'  F2  L2  D2  L   D2  L   D'  L'  B'  L2  D2  L'  R2  Uw2 Fw2 U   Rw2 B   R2  D'  Fw2 F2  D2  Fw2 D2  L'  D2  U   Rw' Uw2 F'  Fw  Rw  L   Uw  U   Rw' U2  ",
+            "B2  U'  L2  F   L2  D'  R   B'  L'  D   L2  F2  R2  D   R2  B2  U'  L2  U2  L2  Rw2 Fw2 F2  D   L   Uw2 R   Fw2 B2  U   B2  D'  Rw2 Uw2 Fw  U'  Fw' Rw  U   Fw' Rw2 B   L'  U'  B   ",
+            "F'  L2  B   L2  D   L2  B2  U'  F2  D   B2  D'  L2  F   R   D   L'  U'  R   B'  Uw2 Fw2 D   F2  R   D2  Fw2 R   U   Rw2 R   L   D'  Fw  B   L   B2  D2  Rw' Fw' Uw  Fw2 R'  B   ",
+            "L2  B2  D'  B2  L2  B2  D2  L   F2  L'  F2  U2  L2  B   L'  U   B2  R'  U2  B'  Uw2 Rw2 U   L'  Fw2 B2  F2  Rw2 U   L'  Fw2 Uw2 F'  D2  Fw  U   F   L   B'  Rw' B2  Uw' Fw2 F2  ",
+            "F'  U'  F'  R   D2  B2  R   L'  B2  R   F2  R   B2  U'  R'  L   U2  F'  R   U2  Uw2 L   R'  U'  R'  Fw2 Uw2 L'  U2  Rw2 F2  Fw' Rw2 L'  F   R2  L   Uw  R2  L   Fw' Uw' F'  D2  Rw' "
+        };
+
+        Search.init();
+        Search sequential = new Search();
+        Search parallel = new Search();
+        parallel.setParallelism(4);
+        Random r1 = new Random(2024);
+        Random r2 = new Random(2024);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], sequential.randomState(r1), "Scramble " + i);
+            assertEquals(expected[i], parallel.randomState(r2), "Scramble " + i);
+        }
+    }
+
+    @Test
+    public void testPipeline() {
+        int FOUR_BY_FOUR_SCRAMBLE_COUNT = 5;
+
+        FourByFourCubePuzzle fours = new FourByFourCubePuzzle();
+        long seed = r.nextLong();
+        Random r1 = new Random(seed);
+        String[] scrambles = new String[FOUR_BY_FOUR_SCRAMBLE_COUNT];
+        for (int i = 0; i < FOUR_BY_FOUR_SCRAMBLE_COUNT; i++) {
+            scrambles[i] = fours.generateWcaScramble(r1);
+        }
+        assertArrayEquals(scrambles, fours.generateWcaScrambles(new Random(seed), FOUR_BY_FOUR_SCRAMBLE_COUNT, 2, 1, 1));
+    }
+
+    @Test
+    public void benchmarkProfiles() throws InvalidScrambleException, InvalidMoveException {
+        int FOUR_BY_FOUR_SCRAMBLE_COUNT = 20;
+
+        FourByFourCubePuzzle fours = new FourByFourCubePuzzle();
+        fours.generateWcaScramble(r);
+        for (Search.Profile profile : Search.Profile.values()) {
+            fours.setProfile(profile);
+            l.info("Generating " + FOUR_BY_FOUR_SCRAMBLE_COUNT + " 4x4x4 scrambles with the " + profile + " profile");
+            long moveCount = 0;
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < FOUR_BY_FOUR_SCRAMBLE_COUNT; i++) {
+                String scramble = fours.generateWcaScramble(r);
+                Puzzle.PuzzleState state = fours.getSolvedState().applyAlgorithm(scramble);
+                assertNull(state.solveIn(fours.getWcaMinScrambleDistance() - 1));
+
+                // Canonicalizing it again changes nothing, so no two of its moves cancel or merge.
+                AlgorithmBuilder ab = new AlgorithmBuilder(fours, AlgorithmBuilder.MergingMode.CANONICALIZE_MOVES);
+                ab.appendAlgorithm(scramble);
+                assertEquals(scramble, ab.toString(), profile + " scramble");
+                assertEquals(state, ab.getState());
+                moveCount += scramble.split(" ").length;
+            }
+            long endNanos = System.nanoTime();
+            l.info("Finished at " + (endNanos - startNanos) / 1000000 / FOUR_BY_FOUR_SCRAMBLE_COUNT + " ms/scramble, " + (double) moveCount / FOUR_BY_FOUR_SCRAMBLE_COUNT + " moves/scramble");
+        }
+    }
+}
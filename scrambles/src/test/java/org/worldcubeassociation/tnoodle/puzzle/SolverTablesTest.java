@@ -0,0 +1,35 @@
+package org.worldcubeassociation.tnoodle.puzzle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SolverTablesTest {
+    private static final Logger l = Logger.getLogger(SolverTablesTest.class.getName());
+
+    private static final Random r = new Random();
+
+    @Test
+    public void testReleaseTables() {
+        FourByFourCubePuzzle fours = new FourByFourCubePuzzle();
+        SquareOnePuzzle sq1 = new SquareOnePuzzle();
+        long seed = r.nextLong();
+        String fourScramble = fours.generateWcaScramble(new Random(seed));
+        String sq1Scramble = sq1.generateWcaScramble(new Random(seed));
+
+        long bytes = SolverTables.tableBytes();
+        l.info("Solver tables take up " + bytes + " bytes");
+        SolverTables tables = new SolverTables(0, Long.MAX_VALUE);
+        assertEquals(SolverTables.Solver.values().length, tables.releaseTables().size());
+        assertTrue(SolverTables.tableBytes() < bytes);
+        assertEquals(0, SolverTables.Solver.THREE_PHASE.tableBytes());
+
+        // The tables are built again by the next search, and they are the same.
+        assertEquals(fourScramble, fours.generateWcaScramble(new Random(seed)));
+        assertEquals(sq1Scramble, sq1.generateWcaScramble(new Random(seed)));
+    }
+}
@@ -1,14 +1,34 @@
 package org.worldcubeassociation.tnoodle.puzzle;
 
+import cs.sq12phase.Search;
 import org.worldcubeassociation.tnoodle.scrambles.AlgorithmBuilder;
 import org.worldcubeassociation.tnoodle.scrambles.InvalidMoveException;
+import org.worldcubeassociation.tnoodle.scrambles.InvalidScrambleException;
 import org.worldcubeassociation.tnoodle.scrambles.Puzzle;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SquareOnePuzzleTest {
+    private static final Random r = new Random();
+
     @Test
     public void testMergingMode() throws InvalidMoveException {
         Puzzle sq1 = new SquareOnePuzzle();
@@ -57,6 +77,109 @@ public class SquareOnePuzzleTest {
         assertNotNull(solution);
     }
 
+    @Test
+    public void testTableFile() throws IOException {
+        SquareOnePuzzle sq1 = new SquareOnePuzzle();
+        long seed = r.nextLong();
+        String scramble = sq1.generateWcaScramble(new Random(seed));
+        assertEquals(1, sq1.getInitializationStatus(), 0);
+
+        ByteArrayOutputStream tables = new ByteArrayOutputStream();
+        cs.sq12phase.Tools.saveTo(new DataOutputStream(tables));
+        assertTrue(cs.sq12phase.Search.releaseTables());
+        assertEquals(0, sq1.getInitializationStatus(), 0);
+        cs.sq12phase.Tools.initFrom(new DataInputStream(new ByteArrayInputStream(tables.toByteArray())));
+        assertEquals(1, sq1.getInitializationStatus(), 0);
+        assertEquals(scramble, sq1.generateWcaScramble(new Random(seed)));
+    }
+
+    @Test
+    public void testMoves() throws InvalidScrambleException, InvalidMoveException {
+        SquareOnePuzzle sq1 = new SquareOnePuzzle();
+        Puzzle.PuzzleState state = sq1.getSolvedState().applyAlgorithm(sq1.generateWcaScramble(r));
+
+        // Moves are parsed directly, to the same states as the successors.
+        for (Map.Entry<String, ? extends Puzzle.PuzzleState> successor : state.getSuccessorsByName().entrySet()) {
+            assertEquals(successor.getValue(), state.apply(successor.getKey()));
+            assertEquals(successor.getValue().hashCode(), state.apply(successor.getKey()).hashCode());
+        }
+
+        Puzzle.PuzzleState unslashable = sq1.getSolvedState().apply("(-1,0)");
+        assertThrows(InvalidMoveException.class, () -> unslashable.apply("/"));
+        assertThrows(InvalidMoveException.class, () -> state.apply("(7,0)"));
+        assertThrows(InvalidMoveException.class, () -> state.apply("(0,0)"));
+    }
+
+    @Test
+    public void testOptimalSolutions() throws InvalidMoveException {
+        int MAX_DISTANCE = 4;
+        int SAMPLES = 20;
+        int WALK_LENGTH = 10;
+
+        SquareOnePuzzle sq1 = new SquareOnePuzzle();
+        Random random = new Random(2015);
+
+        // The distances of the states near solved, by a plain breadth first search.
+        SquareOnePuzzle.SquareOneState solved = (SquareOnePuzzle.SquareOneState) sq1.getSolvedState();
+        Set<SquareOnePuzzle.SquareOneState> seen = new HashSet<>();
+        seen.add(solved);
+        List<SquareOnePuzzle.SquareOneState> layer = Collections.singletonList(solved);
+        for (int distance = 1; distance <= MAX_DISTANCE; distance++) {
+            List<SquareOnePuzzle.SquareOneState> next = new ArrayList<>();
+            for (SquareOnePuzzle.SquareOneState state : layer) {
+                for (SquareOnePuzzle.SquareOneState successor : state.getSuccessorsByName().values()) {
+                    if (seen.add(successor)) {
+                        next.add(successor);
+                    }
+                }
+            }
+            layer = next;
+
+            List<SquareOnePuzzle.SquareOneState> samples = new ArrayList<>(layer);
+            Collections.shuffle(samples, random);
+            int checked = 0;
+            for (SquareOnePuzzle.SquareOneState state : samples) {
+                if (checked == SAMPLES) {
+                    break;
+                }
+                if (!state.getSuccessorsByName().containsKey("/")) {
+                    continue;
+                }
+                checked++;
+
+                assertNull(state.solveIn(distance - 1), state + " is " + distance + " moves away");
+                assertEquals(distance, solutionCost(state, state.solveIn(distance)));
+                assertTrue(Search.getLowerBound(state.toFullCube()) <= distance, state + " is " + distance + " moves away");
+            }
+        }
+
+        // Further from solved, the length of a random walk bounds the distance instead.
+        for (int i = 0; i < SAMPLES; i++) {
+            AlgorithmBuilder walk = new AlgorithmBuilder(sq1, AlgorithmBuilder.MergingMode.CANONICALIZE_MOVES);
+            for (int j = 0; j < WALK_LENGTH; j++) {
+                List<String> moves = new ArrayList<>(walk.getState().getSuccessorsByName().keySet());
+                walk.appendMove(moves.get(random.nextInt(moves.size())));
+            }
+            SquareOnePuzzle.SquareOneState state = (SquareOnePuzzle.SquareOneState) walk.getState();
+            if (!state.getSuccessorsByName().containsKey("/")) {
+                continue;
+            }
+
+            int distance = solutionCost(state, state.solveIn(walk.getTotalCost()));
+            assertTrue(distance <= walk.getTotalCost());
+            assertNull(state.solveIn(distance - 1), state + " is " + distance + " moves away");
+            assertTrue(Search.getLowerBound(state.toFullCube()) <= distance, state + " is " + distance + " moves away");
+        }
+    }
+
+    private int solutionCost(Puzzle.PuzzleState state, String solution) throws InvalidMoveException {
+        assertNotNull(solution);
+        AlgorithmBuilder ab = new AlgorithmBuilder(AlgorithmBuilder.MergingMode.CANONICALIZE_MOVES, state);
+        ab.appendAlgorithm(solution);
+        assertTrue(ab.getState().isSolved(), solution + " does not solve " + state);
+        return ab.getTotalCost();
+    }
+
     private String solveScrambleStringIn(Puzzle puzzle, String scramble, int n) throws InvalidMoveException {
         AlgorithmBuilder ab = new AlgorithmBuilder(puzzle, AlgorithmBuilder.MergingMode.CANONICALIZE_MOVES);
         ab.appendAlgorithm(scramble);
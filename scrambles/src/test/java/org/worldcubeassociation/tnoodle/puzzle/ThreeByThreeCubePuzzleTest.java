@@ -0,0 +1,288 @@
+package org.worldcubeassociation.tnoodle.puzzle;
+
+import cs.min2phase.Search;
+import cs.min2phase.SearchWCA;
+import cs.min2phase.Tools;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.worldcubeassociation.tnoodle.scrambles.InvalidScrambleException;
+import org.worldcubeassociation.tnoodle.scrambles.PuzzleStateAndGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ThreeByThreeCubePuzzleTest {
+    private static final Logger l = Logger.getLogger(ThreeByThreeCubePuzzleTest.class.getName());
+
+    private static final Random r = new Random();
+
+    @Test
+    public void testSearchWcaProbeMin() {
+        // SearchWCA takes probeMin in milliseconds: it keeps looking for
+        // shorter solutions for that long before it returns.
+        long probeMin = 100;
+        Random r = new Random(2015);
+        SearchWCA searcher = new SearchWCA();
+        for (int i = 0; i < 5; i++) {
+            String cube = Tools.randomCube(r);
+
+            long start = System.currentTimeMillis();
+            String solution = searcher.solution(cube, 21, 10000, probeMin, 0);
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertFalse(solution.startsWith("Error"), solution);
+            assertTrue(elapsed >= probeMin, "Stopped after " + elapsed + "ms");
+        }
+    }
+
+    @Test
+    public void testSolveUntilExpiredDeadline() {
+        Random r = new Random(2019);
+        Search searcher = new Search();
+        for (int i = 0; i < 5; i++) {
+            String cube = Tools.randomCube(r);
+            List<String> found = new ArrayList<>();
+            String solution = searcher.solveUntil(cube, 21, System.currentTimeMillis() - 1, Search.INVERSE_SOLUTION, (s, moves) -> found.add(s));
+            assertEquals("Error 8", solution);
+            assertTrue(found.isEmpty(), found.toString());
+
+            // The search stopped at its first probe, and picks up from there.
+            solution = searcher.next(100000, 0, Search.INVERSE_SOLUTION);
+            assertFalse(solution.startsWith("Error"), solution);
+            assertEquals(cube, Tools.fromScramble(solution));
+        }
+    }
+
+    @Test
+    public void testSolveUntilListener() {
+        Random r = new Random(2020);
+        Search searcher = new Search();
+        for (int i = 0; i < 5; i++) {
+            String cube = Tools.randomCube(r);
+            List<String> found = new ArrayList<>();
+            List<Integer> lengths = new ArrayList<>();
+            String solution = searcher.solveUntil(cube, 22, System.currentTimeMillis() + 300, Search.INVERSE_SOLUTION, (s, moves) -> {
+                assertEquals(cube, Tools.fromScramble(s));
+                assertEquals(s.trim().split("\\s+").length, moves.length, s);
+                found.add(s);
+                lengths.add(moves.length);
+            });
+            assertFalse(found.isEmpty());
+            for (int j = 1; j < lengths.size(); j++) {
+                assertTrue(lengths.get(j) < lengths.get(j - 1), found.toString());
+            }
+            assertEquals(found.get(found.size() - 1), solution);
+            assertEquals((int) lengths.get(lengths.size() - 1), searcher.length());
+        }
+    }
+
+    @Test
+    public void testNoScrambleTimeBudget() throws InvalidScrambleException {
+        // Without any time to look for shorter scrambles, the puzzle still
+        // gets the first one the search finds.
+        ThreeByThreeCubePuzzle threes = new ThreeByThreeCubePuzzle();
+        threes.setScrambleTimeBudget(0);
+        Random r = new Random(2021);
+        for (int i = 0; i < 10; i++) {
+            PuzzleStateAndGenerator psag = i % 2 == 0 ? threes.generateRandomMoves(r) : threes.generateRandomMoves(r, "F", "R");
+            String[] moves = psag.generator.trim().split("\\s+");
+            assertTrue(moves.length <= 21, psag.generator);
+            assertEquals(psag.state, threes.getSolvedState().applyAlgorithm(psag.generator));
+            if (i % 2 == 1) {
+                // The restrictions are on the solution, which is the scramble inverted.
+                assertFalse(moves[0].startsWith("R") || moves[0].startsWith("L"), psag.generator);
+                assertFalse(moves[moves.length - 1].startsWith("F") || moves[moves.length - 1].startsWith("B"), psag.generator);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentScrambles() throws InvalidScrambleException, InterruptedException, ExecutionException {
+        // With no time budget the puzzle settles for the first scramble its
+        // searcher finds, so each seed always gives the same one, whichever
+        // searcher of the pool is used and however many threads share it.
+        ThreeByThreeCubePuzzle threes = new ThreeByThreeCubePuzzle();
+        threes.setScrambleTimeBudget(0);
+        int count = 40;
+        String[] sequential = new String[count];
+        for (int i = 0; i < count; i++) {
+            sequential[i] = scrambleAndSolve(threes, i);
+        }
+
+        // The threads race to build the tables again, too.
+        assertTrue(Search.releaseTables());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int seed = i;
+                futures.add(executor.submit(() -> scrambleAndSolve(threes, seed)));
+            }
+            for (int i = 0; i < count; i++) {
+                assertEquals(sequential[i], futures.get(i).get(), "Seed " + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static String scrambleAndSolve(ThreeByThreeCubePuzzle threes, int seed) throws InvalidScrambleException {
+        PuzzleStateAndGenerator psag = threes.generateRandomMoves(new Random(seed));
+        String solution = threes.solveIn(psag.state, 21, null, null);
+        assertTrue(psag.state.applyAlgorithm(solution).isSolved(), solution);
+        return psag.generator + " / " + solution;
+    }
+
+    @Test
+    public void testParallelConjugates() {
+        Random r = new Random(2017);
+        Search searcher = new Search();
+        searcher.setParallelConjugates(true);
+        for (int maxDepth = 19; maxDepth <= 21; maxDepth++) {
+            for (int i = 0; i < 10; i++) {
+                String cube = Tools.randomCube(r);
+                String solution = searcher.solution(cube, maxDepth, 100000, 0, Search.INVERSE_SOLUTION);
+                assertFalse(solution.startsWith("Error"), solution);
+                assertEquals(cube, Tools.fromScramble(solution));
+                assertTrue(searcher.length() <= maxDepth, solution);
+                assertEquals(searcher.length(), solution.trim().split("\\s+").length, solution);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelConjugatesProbeLimits() {
+        // The probes of all six conjugate searches count against the same
+        // limits. Each of them checks the shared count before it probes, so
+        // together they can go past a limit by at most one probe each.
+        int searchers = 6;
+        Random r = new Random(2018);
+        Search searcher = new Search();
+        searcher.setParallelConjugates(true);
+        for (int i = 0; i < 5; i++) {
+            String cube = Tools.randomCube(r);
+
+            // No random cube is 12 moves away, so every searcher runs out of probes.
+            long probeMax = 200;
+            String solution = searcher.solution(cube, 12, probeMax, 0, 0);
+            assertEquals("Error 8", solution);
+            assertTrue(searcher.numberOfProbes() >= probeMax, searcher.numberOfProbes() + " probes");
+            assertTrue(searcher.numberOfProbes() <= probeMax + searchers, searcher.numberOfProbes() + " probes");
+
+            // Once a solution is found, the searchers keep improving it until
+            // probeMin is spent, and then all of them stop.
+            long probeMin = 500;
+            solution = searcher.solution(cube, 21, 100000, probeMin, Search.INVERSE_SOLUTION);
+            assertFalse(solution.startsWith("Error"), solution);
+            assertEquals(cube, Tools.fromScramble(solution));
+            assertTrue(searcher.numberOfProbes() >= probeMin, searcher.numberOfProbes() + " probes");
+            assertTrue(searcher.numberOfProbes() <= probeMin + searchers, searcher.numberOfProbes() + " probes");
+        }
+    }
+
+    @Test
+    public void testOptimalTable(@TempDir File dir) throws IOException {
+        // Optimal solves of random cubes take too long without the table,
+        // so these are a dozen moves or so from solved.
+        Random r = new Random(2022);
+        String[] cubes = new String[10];
+        for (int i = 0; i < cubes.length; i++) {
+            int[] moves = new int[12];
+            for (int j = 0; j < moves.length; j++) {
+                moves[j] = r.nextInt(18);
+            }
+            cubes[i] = Tools.fromScramble(moves);
+        }
+
+        try {
+            Search.setOptimalTable(false);
+            int[] lengths = solveOptimally(cubes);
+
+            Search.setOptimalTable(true);
+            assertArrayEquals(lengths, solveOptimally(cubes));
+
+            File saved = new File(dir, "optimal.prun");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(saved)))) {
+                Tools.saveOptimalTable(out);
+            }
+            assertTrue(Search.releaseTables());
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(saved)))) {
+                Tools.initOptimalTable(in);
+            }
+            assertArrayEquals(lengths, solveOptimally(cubes));
+
+            File resaved = new File(dir, "optimal2.prun");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(resaved)))) {
+                Tools.saveOptimalTable(out);
+            }
+            assertTrue(Arrays.equals(Files.readAllBytes(saved.toPath()), Files.readAllBytes(resaved.toPath())));
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(resaved)))) {
+                in.readInt();
+                assertThrows(IOException.class, () -> Tools.initOptimalTable(in));
+            }
+        } finally {
+            Search.setOptimalTable(false);
+            Search.releaseTables();
+        }
+    }
+
+    private static int[] solveOptimally(String[] cubes) {
+        Search searcher = new Search();
+        int[] lengths = new int[cubes.length];
+        for (int i = 0; i < cubes.length; i++) {
+            String solution = searcher.solution(cubes[i], 21, Long.MAX_VALUE, 0, Search.INVERSE_SOLUTION | Search.OPTIMAL_SOLUTION);
+            assertEquals(cubes[i], Tools.fromScramble(solution));
+            lengths[i] = searcher.length();
+        }
+        return lengths;
+    }
+
+    @Test
+    public void benchmarkTableProfiles() {
+        int THREE_BY_THREE_SCRAMBLE_COUNT = 100;
+        int THREE_BY_THREE_MAX_SCRAMBLE_LENGTH = 21;
+        int THREE_BY_THREE_TIMEOUT = 5*1000; //milliseconds
+
+        Search threeSolver = new Search();
+        try {
+            for (Search.TableProfile profile : Search.TableProfile.values()) {
+                Search.setTableProfile(profile);
+                Search.init();
+                l.info("Solving " + THREE_BY_THREE_SCRAMBLE_COUNT + " random 3x3x3 cubes with the " + profile + " tables (" + Search.tableBytes() + " bytes)");
+                long startNanos = System.nanoTime();
+                for (int i = 0; i < THREE_BY_THREE_SCRAMBLE_COUNT; i++) {
+                    String facelets = Tools.randomCube(r);
+                    String solution = threeSolver.solution(facelets, THREE_BY_THREE_MAX_SCRAMBLE_LENGTH, THREE_BY_THREE_TIMEOUT, 0, Search.INVERSE_SOLUTION);
+                    assertEquals(facelets, Tools.fromScramble(solution));
+                }
+                long endNanos = System.nanoTime();
+                l.info("Finished at " + THREE_BY_THREE_SCRAMBLE_COUNT * 1000000000L / (endNanos - startNanos) + " solves/sec");
+            }
+        } finally {
+            Search.setTableProfile(Search.TableProfile.FAST);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.worldcubeassociation.tnoodle.scrambles;
+
+import org.worldcubeassociation.tnoodle.puzzle.ClockPuzzle;
+import org.worldcubeassociation.tnoodle.puzzle.CubePuzzle;
+import org.worldcubeassociation.tnoodle.puzzle.MegaminxPuzzle;
+import org.worldcubeassociation.tnoodle.puzzle.PyraminxPuzzle;
+import org.worldcubeassociation.tnoodle.puzzle.SkewbPuzzle;
+import org.worldcubeassociation.tnoodle.puzzle.SquareOnePuzzle;
+import org.worldcubeassociation.tnoodle.svglite.Color;
+import org.worldcubeassociation.tnoodle.svglite.Dimension;
+import org.worldcubeassociation.tnoodle.svglite.Svg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PuzzleTest {
+    private static final Logger l = Logger.getLogger(PuzzleTest.class.getName());
+
+    private static final Random r = new Random();
+
+    @Test
+    void testSolveInNearSolved() throws InvalidScrambleException {
+        Puzzle[] puzzles = { new CubePuzzle(5), new CubePuzzle(6), new MegaminxPuzzle(), new ClockPuzzle() };
+        for (Puzzle puzzle : puzzles) {
+            int distance = puzzle.getWcaMinScrambleDistance() - 1;
+            for (Puzzle.PuzzleState state : puzzle.getSolvedState().getScrambleSuccessors().values()) {
+                if (state.isSolved()) {
+                    continue;
+                }
+                assertNull(state.solveIn(0));
+                String solution = state.solveIn(distance);
+                assertNotNull(solution, "Puzzle " + puzzle.getShortName() + " solveIn method failed!");
+                assertTrue(state.applyAlgorithm(solution).isSolved(), "Solution was not correct");
+            }
+        }
+    }
+
+    @Test
+    void testSolveInNearSolvedWithMoveCosts() throws InvalidMoveException {
+        StepPuzzle puzzle = new StepPuzzle();
+        for (int position = 1; position < StepPuzzle.POSITIONS; position++) {
+            Puzzle.PuzzleState state = puzzle.new StepState(position);
+            int distance = StepPuzzle.distance(position);
+            for (int n = 0; n < puzzle.getWcaMinScrambleDistance(); n++) {
+                String solution = state.solveIn(n);
+                if (distance > n) {
+                    assertNull(solution, state + " is " + distance + " away");
+                    continue;
+                }
+                assertNotNull(solution, state + " is " + distance + " away");
+                AlgorithmBuilder ab = new AlgorithmBuilder(AlgorithmBuilder.MergingMode.CANONICALIZE_MOVES, state);
+                ab.appendAlgorithm(solution);
+                assertTrue(ab.getState().isSolved(), solution + " does not solve " + state);
+                assertEquals(distance, ab.getTotalCost(), solution + " is not optimal for " + state);
+            }
+        }
+    }
+
+    @Test
+    void benchmarkingStateHashing() throws InvalidScrambleException {
+        // States are used as keys of hash maps all over the place, and hashCode() only
+        // computes their hash once. Compare it to computing the hash every time, and to
+        // comparing equal states without looking at their hashes first.
+        int STATE_COUNT = 100;
+        int ROUNDS = 200;
+        Puzzle[] puzzles = { new CubePuzzle(3), new CubePuzzle(7), new MegaminxPuzzle(), new PyraminxPuzzle(),
+            new SkewbPuzzle(), new ClockPuzzle(), new SquareOnePuzzle() };
+
+        for (Puzzle puzzle : puzzles) {
+            Puzzle.PuzzleState[] states = new Puzzle.PuzzleState[STATE_COUNT];
+            Puzzle.PuzzleState[] copies = new Puzzle.PuzzleState[STATE_COUNT];
+            for (int i = 0; i < STATE_COUNT; i++) {
+                String scramble = puzzle.generateRandomMoves(r).generator;
+                states[i] = puzzle.getSolvedState().applyAlgorithm(scramble);
+                copies[i] = puzzle.getSolvedState().applyAlgorithm(scramble);
+                assertNotSame(states[i], copies[i]);
+                assertEquals(states[i].computeHashCode(), states[i].hashCode());
+                assertEquals(states[i], copies[i]);
+                assertEquals(states[i].hashCode(), copies[i].hashCode());
+            }
+
+            long startNanos = System.nanoTime();
+            int matches = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int i = 0; i < STATE_COUNT; i++) {
+                    Puzzle.PuzzleState other = round % 2 == 0 ? copies[i] : states[(i + 1) % STATE_COUNT];
+                    if (states[i].hashCode() == other.hashCode() && states[i].equals(other)) {
+                        matches++;
+                    }
+                }
+            }
+            long cachedNanos = System.nanoTime() - startNanos;
+
+            startNanos = System.nanoTime();
+            int uncachedMatches = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int i = 0; i < STATE_COUNT; i++) {
+                    Puzzle.PuzzleState other = round % 2 == 0 ? copies[i] : states[(i + 1) % STATE_COUNT];
+                    if (states[i].computeHashCode() == other.computeHashCode() && states[i].equalsState(other)) {
+                        uncachedMatches++;
+                    }
+                }
+            }
+            long uncachedNanos = System.nanoTime() - startNanos;
+
+            assertEquals(uncachedMatches, matches);
+            int lookups = ROUNDS * STATE_COUNT;
+            l.info(puzzle + ": " + cachedNanos / lookups + "ns per lookup with cached hashes, "
+                + uncachedNanos / lookups + "ns computing them every time");
+        }
+    }
+
+    /**
+     * A position on a circle, where a and A step by 1 for a cost of 1, and b and B jump by 3
+     * for a cost of 4. The jumps come first in getCanonicalMovesByState(), so they are the
+     * first moves a walk towards solved looks at.
+     */
+    private static class StepPuzzle extends Puzzle {
+        static final int POSITIONS = 12;
+        static final String[] MOVES = { "b", "B", "a", "A" };
+        static final int[] STEPS = { -3, 3, -1, 1 };
+        static final int[] COSTS = { 4, 4, 1, 1 };
+
+        StepPuzzle() {
+            wcaMinScrambleDistance = 4;
+            indexSolvedNeighborhood = true;
+        }
+
+        static int distance(int position) {
+            int best = Integer.MAX_VALUE;
+            for (int jumps = -POSITIONS; jumps <= POSITIONS; jumps++) {
+                int steps = Math.floorMod(-position - 3 * jumps, POSITIONS);
+                steps = Math.min(steps, POSITIONS - steps);
+                best = Math.min(best, 4 * Math.abs(jumps) + steps);
+            }
+            return best;
+        }
+
+        @Override
+        public String getShortName() {
+            return "step";
+        }
+
+        @Override
+        public String getLongName() {
+            return "Step";
+        }
+
+        @Override
+        public Map<String, Color> getDefaultColorScheme() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(0, 0);
+        }
+
+        @Override
+        public PuzzleState getSolvedState() {
+            return new StepState(0);
+        }
+
+        @Override
+        protected int getRandomMoveCount() {
+            return 10;
+        }
+
+        class StepState extends PuzzleState {
+            final int position;
+
+            StepState(int position) {
+                this.position = Math.floorMod(position, POSITIONS);
+            }
+
+            @Override
+            public Map<String, StepState> getSuccessorsByName() {
+                Map<String, StepState> successors = new LinkedHashMap<>();
+                for (int i = 0; i < MOVES.length; i++) {
+                    successors.put(MOVES[i], new StepState(position + STEPS[i]));
+                }
+                return successors;
+            }
+
+            @Override
+            public Map<StepState, String> getCanonicalMovesByState() {
+                Map<StepState, String> movesByState = new LinkedHashMap<>();
+                for (Map.Entry<String, StepState> successor : getSuccessorsByName().entrySet()) {
+                    movesByState.put(successor.getValue(), successor.getKey());
+                }
+                return movesByState;
+            }
+
+            @Override
+            public int getMoveCost(String move) {
+                return COSTS[Arrays.asList(MOVES).indexOf(move)];
+            }
+
+            @Override
+            protected boolean equalsState(PuzzleState other) {
+                return position == ((StepState) other).position;
+            }
+
+            @Override
+            protected int computeHashCode() {
+                return position + 1;
+            }
+
+            @Override
+            protected Svg drawScramble(Map<String, Color> colorScheme) {
+                return null;
+            }
+
+            @Override
+            public String toString() {
+                return "position " + position;
+            }
+        }
+    }
+}
@@ -26,10 +26,6 @@ public class FullCube implements Comparable<FullCube> {
         return ml - f.ml;
     }
 
-    static {
-        Search.init();
-    }
-
     FullCube(String s) {
         //TODO
     }
@@ -38,6 +34,19 @@ public class FullCube implements Comparable<FullCube> {
 
     }
 
+    /**
+     * @param ul the pieces of the layers, as in the fields of the same names: a nibble a slot, the first slot in
+     * the highest one.
+     * @param ml 0 if the middle layer is solved, 1 if it is flipped.
+     */
+    public FullCube(int ul, int ur, int dl, int dr, int ml) {
+        this.ul = ul;
+        this.ur = ur;
+        this.dl = dl;
+        this.dr = dr;
+        this.ml = ml;
+    }
+
     boolean isSolved() {
         return ul == 0x011233 && ur == 0x455677 && dl == 0x998bba && dr == 0xddcffe && ml == 0;
     }
@@ -119,7 +128,7 @@ public class FullCube implements Comparable<FullCube> {
         }
     }
 
-    private byte pieceAt(int idx) {
+    byte pieceAt(int idx) {
         int ret;
         if (idx < 6) {
             ret = ul >> ((5 - idx) << 2);
@@ -1,5 +1,7 @@
 package cs.sq12phase;
 
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Search {
     public static final int INVERSE_SOLUTION = 0x2;
@@ -29,13 +31,128 @@ public class Search {
         return p & 1;
     }
 
-    static void init() {
-        Shape.init();
-        Square.init();
+    static volatile boolean inited = false;
+
+    /**
+     * The searches running right now, which keep releaseTables() from dropping the tables under them.
+     */
+    static final AtomicInteger activeSearches = new AtomicInteger();
+    static volatile long lastUsed = 0;
+
+    /**
+     * The number of entries of the pruning tables, and how many of them have been filled in so far.
+     */
+    static final int N_PRUN = 3678 * 2 * 2 + 40320 * 2 + ShapeColor.N_SIZE * 2;
+    static final AtomicInteger initDone = new AtomicInteger();
+
+    /**
+     * Whether the pruning tables are built at the same time on the common ForkJoinPool.
+     */
+    static volatile boolean parallelInit = Runtime.getRuntime().availableProcessors() > 1;
+
+    /**
+     * Builds the tables, unless they are built already. Searches call this themselves, so it only needs to be called
+     * to build the tables ahead of the first one.
+     */
+    public static void init() {
+        if (!inited) {
+            initTables();
+        }
+    }
+
+    private static synchronized void initTables() {
+        if (inited) {
+            return;
+        }
+        initDone.set(0);
+        Shape.initMove();
+        Square.initMove();
+        ShapeColor.initMove();
+        if (parallelInit) {
+            ForkJoinTask.invokeAll(
+                ForkJoinTask.adapt(Shape::initShapePrun),
+                ForkJoinTask.adapt(Shape::initShapePrunOpt),
+                ForkJoinTask.adapt(Square::initPrun),
+                ForkJoinTask.adapt(ShapeColor::initCornerPrun),
+                ForkJoinTask.adapt(ShapeColor::initEdgePrun));
+        } else {
+            Shape.initShapePrun();
+            Shape.initShapePrunOpt();
+            Square.initPrun();
+            ShapeColor.initCornerPrun();
+            ShapeColor.initEdgePrun();
+        }
+        lastUsed = System.currentTimeMillis();
+        inited = true;
+    }
+
+    /**
+     * @return the part of the pruning tables built so far, from 0 to 1.
+     */
+    public static double initStatus() {
+        return inited ? 1 : Math.min(1, initDone.get() * 1.0 / N_PRUN);
+    }
+
+    /**
+     * Chooses whether the pruning tables are built on all available cores, which is the default on multi-core
+     * machines, or on the calling thread only. The tables come out identical either way.
+     */
+    public static void setParallelInit(boolean parallelInit) {
+        Search.parallelInit = parallelInit;
+    }
+
+    /**
+     * Drops the move and pruning tables to free their memory. They are built again by the next search. inited is
+     * reset before activeSearches is read, and a search is counted before it reads inited, so either this sees the
+     * search and gives up, or the search waits in initTables() until the tables are dropped and then builds them
+     * again.
+     *
+     * @return false if a search was running, in which case the tables are kept.
+     */
+    public static synchronized boolean releaseTables() {
+        boolean wasInited = inited;
+        inited = false;
+        if (activeSearches.get() != 0) {
+            inited = wasInited;
+            return false;
+        }
+        Shape.ShapePrun = null;
+        Shape.ShapePrunOpt = null;
+        Shape.TopMove = null;
+        Shape.BottomMove = null;
+        Shape.TwistMove = null;
+        Square.SquarePrun = null;
+        Square.TwistMove = null;
+        Square.TopMove = null;
+        Square.BottomMove = null;
+        ShapeColor.CornerPerm = null;
+        ShapeColor.EdgePerm = null;
+        ShapeColor.CornerPrun = null;
+        ShapeColor.EdgePrun = null;
+        initDone.set(0);
+        return true;
     }
 
-    static {
-        init();
+    /**
+     * @return the number of bytes taken up by the tables releaseTables() drops.
+     */
+    public static synchronized long tableBytes() {
+        if (!inited) {
+            return 0;
+        }
+        return (Shape.ShapePrun.length + Shape.ShapePrunOpt.length + Shape.TopMove.length
+                + Shape.BottomMove.length + Shape.TwistMove.length) * 4L
+               + (ShapeColor.CornerPerm.length + ShapeColor.EdgePerm.length) * 4L
+               + Square.SquarePrun.length + ShapeColor.CornerPrun.length + ShapeColor.EdgePrun.length
+               + (Square.TwistMove.length + Square.TopMove.length + Square.BottomMove.length) * 2L;
+    }
+
+    /**
+     * @return the value of System.currentTimeMillis() when the last search finished or the tables
+     * were built, or 0 if neither happened yet.
+     */
+    public static long lastUsed() {
+        return lastUsed;
     }
 
     public String solution(FullCube c, int verbose) {
@@ -43,11 +160,18 @@ public class Search {
         this.verbose = verbose;
         sol_string = null;
         int shape = c.getShapeIdx();
-        for (length1 = Shape.ShapePrun[shape]; length1 < 100; length1++) {
-            maxlen2 = Math.min(31 - length1, 17);
-            if (idaPhase1(shape, Shape.ShapePrun[shape], length1, 0, -1)) {
-                break;
+        activeSearches.incrementAndGet();
+        try {
+            init();
+            for (length1 = Shape.ShapePrun[shape]; length1 < 100; length1++) {
+                maxlen2 = Math.min(31 - length1, 17);
+                if (idaPhase1(shape, Shape.ShapePrun[shape], length1, 0, -1)) {
+                    break;
+                }
             }
+        } finally {
+            lastUsed = System.currentTimeMillis();
+            activeSearches.decrementAndGet();
         }
         return sol_string;
     }
@@ -61,10 +185,21 @@ public class Search {
         this.verbose = verbose;
         sol_string = null;
         int shape = c.getShapeIdx();
-        for (length1 = Shape.ShapePrunOpt[shape] * PRUN_INC; length1 <= maxl * PRUN_INC; length1 += PRUN_INC) {
-            if (phase1Opt(shape, Shape.ShapePrunOpt[shape], length1, 0, -1, 0)) {
-                break;
+        activeSearches.incrementAndGet();
+        try {
+            init();
+            // The colors of the pieces rule out most random cubes at small maxl without any search.
+            int corner = ShapeColor.getColors(c, true);
+            int edge = ShapeColor.getColors(c, false);
+            int prun = getLowerBound(shape, corner, edge);
+            for (length1 = prun * PRUN_INC; length1 <= maxl * PRUN_INC; length1 += PRUN_INC) {
+                if (phase1Opt(shape, Shape.ShapePrunOpt[shape], length1, 0, -1, 0, corner, edge)) {
+                    break;
+                }
             }
+        } finally {
+            lastUsed = System.currentTimeMillis();
+            activeSearches.decrementAndGet();
         }
         return sol_string;
     }
@@ -73,13 +208,34 @@ public class Search {
         return solutionOpt(c, maxl, 0);
     }
 
+    /**
+     * @return a lower bound of the length of the solutions of c found by solutionOpt, in the same metric.
+     */
+    public static int getLowerBound(FullCube c) {
+        activeSearches.incrementAndGet();
+        try {
+            init();
+            return getLowerBound(c.getShapeIdx(), ShapeColor.getColors(c, true), ShapeColor.getColors(c, false));
+        } finally {
+            activeSearches.decrementAndGet();
+        }
+    }
+
+    static int getLowerBound(int shape, int corner, int edge) {
+        return Math.max(Shape.ShapePrunOpt[shape], ShapeColor.getPrun(shape, corner, edge));
+    }
+
     static int count0xf(int val) {
         val &= val >> 1;
         val &= val >> 2;
         return Integer.bitCount(val & 0x11111111);
     }
 
-    boolean phase1Opt(int shape, int prunvalue, int maxl, int depth, int lm, int lastTurns) {
+    /**
+     * corner and edge are the colors of the corners and edges, see ShapeColor, which prune the moves that the shape
+     * alone lets through.
+     */
+    boolean phase1Opt(int shape, int prunvalue, int maxl, int depth, int lm, int lastTurns, int corner, int edge) {
         int i = count0xf((lastTurns ^ ~0x000000) & 0xff00ff)
                 - count0xf((lastTurns ^ ~0x666666) & 0xff00ff);
         if (i < 0 || i == 0 && (lastTurns >> 20 & 0xf) >= 6) {
@@ -99,10 +255,12 @@ public class Search {
         if (lm != 0) {
             int shapex = Shape.TwistMove[shape];
             int prun = Shape.ShapePrunOpt[shapex];
-            if (prun < maxl / PRUN_INC) {
+            int cornerx = ShapeColor.permute(ShapeColor.CornerPerm[(shape >> 1) * 23], corner);
+            int edgex = ShapeColor.permute(ShapeColor.EdgePerm[(shape >> 1) * 23], edge);
+            if (prun < maxl / PRUN_INC && ShapeColor.getPrun(shapex, cornerx, edgex) < maxl / PRUN_INC) {
                 move[depth] = 0;
                 int next_maxl = (maxl / PRUN_INC - 1) * PRUN_INC;
-                if (phase1Opt(shapex, prun, next_maxl, depth + 1, 0, lastTurns << 8)) {
+                if (phase1Opt(shapex, prun, next_maxl, depth + 1, 0, lastTurns << 8, cornerx, edgex)) {
                     return true;
                 }
             }
@@ -123,8 +281,13 @@ public class Search {
                 if (prun * PRUN_INC > (maxl + PRUN_INC - 1)) {
                     break;
                 } else if (prun * PRUN_INC < (maxl + PRUN_INC - 1)) {
+                    int cornerx = ShapeColor.permute(ShapeColor.CornerPerm[(shape >> 1) * 23 + m], corner);
+                    int edgex = ShapeColor.permute(ShapeColor.EdgePerm[(shape >> 1) * 23 + m], edge);
+                    if (ShapeColor.getPrun(shapex, cornerx, edgex) * PRUN_INC >= (maxl + PRUN_INC - 1)) {
+                        continue;
+                    }
                     move[depth] = m;
-                    if (phase1Opt(shapex, prun, maxl - 1, depth + 1, 1, lastTurns | m << 4)) {
+                    if (phase1Opt(shapex, prun, maxl - 1, depth + 1, 1, lastTurns | m << 4, cornerx, edgex)) {
                         return true;
                     }
                 }
@@ -146,8 +309,13 @@ public class Search {
                 if (prun * PRUN_INC > (maxl + PRUN_INC - 1)) {
                     break;
                 } else if (prun * PRUN_INC < (maxl + PRUN_INC - 1)) {
+                    int cornerx = ShapeColor.permute(ShapeColor.CornerPerm[(shape >> 1) * 23 + 11 + m], corner);
+                    int edgex = ShapeColor.permute(ShapeColor.EdgePerm[(shape >> 1) * 23 + 11 + m], edge);
+                    if (ShapeColor.getPrun(shapex, cornerx, edgex) * PRUN_INC >= (maxl + PRUN_INC - 1)) {
+                        continue;
+                    }
                     move[depth] = -m;
-                    if (phase1Opt(shapex, prun, maxl - 1, depth + 1, 2, lastTurns | m)) {
+                    if (phase1Opt(shapex, prun, maxl - 1, depth + 1, 2, lastTurns | m, cornerx, edgex)) {
                         return true;
                     }
                 }
@@ -9,12 +9,12 @@ class Shape {
                              };
 
     static int[] ShapeIdx = new int[3678];
-    static int[] ShapePrun = new int[3678 * 2];
-    static int[] ShapePrunOpt = new int[3678 * 2];
+    static int[] ShapePrun;
+    static int[] ShapePrunOpt;
 
-    static int[] TopMove = new int[3678 * 2];
-    static int[] BottomMove = new int[3678 * 2];
-    static int[] TwistMove = new int[3678 * 2];
+    static int[] TopMove;
+    static int[] BottomMove;
+    static int[] TwistMove;
 
     private Shape() {}
 
@@ -87,9 +87,22 @@ class Shape {
         bottom = (bottom & 0x3f) | temp << 6;
     }
 
-    static boolean inited = false;
+    static {
+        int count = 0;
+        for (int i = 0; i < 13 * 13 * 13 * 13; i++) {
+            int dr = halflayer[i % 13];
+            int dl = halflayer[i / 13 % 13];
+            int ur = halflayer[i / 13 / 13 % 13];
+            int ul = halflayer[i / 13 / 13 / 13];
+            int value = ul << 18 | ur << 12 | dl << 6 | dr;
+            if (Integer.bitCount(value) == 16) {
+                ShapeIdx[count++] = value;
+            }
+        }
+    }
 
     static void initPruning(int[] Prun, int done, int metric) {
+        Search.initDone.addAndGet(done);
         int done0 = 0;
         int depth = -1;
         while (done != done0) {
@@ -147,24 +160,14 @@ class Shape {
                     }
                 }
             }
+            Search.initDone.addAndGet(done - done0);
         }
     }
 
-    static void init() {
-        if (inited) {
-            return;
-        }
-        int count = 0;
-        for (int i = 0; i < 13 * 13 * 13 * 13; i++) {
-            int dr = halflayer[i % 13];
-            int dl = halflayer[i / 13 % 13];
-            int ur = halflayer[i / 13 / 13 % 13];
-            int ul = halflayer[i / 13 / 13 / 13];
-            int value = ul << 18 | ur << 12 | dl << 6 | dr;
-            if (Integer.bitCount(value) == 16) {
-                ShapeIdx[count++] = value;
-            }
-        }
+    static void initMove() {
+        TopMove = new int[3678 * 2];
+        BottomMove = new int[3678 * 2];
+        TwistMove = new int[3678 * 2];
         Shape s = new Shape();
         for (int i = 0; i < 3678 * 2; i++) {
             s.setIdx(i);
@@ -177,19 +180,25 @@ class Shape {
             s.twistMove();
             TwistMove[i] = s.getIdx();
         }
-        for (int i = 0; i < 3678 * 2; i++) {
-            ShapePrun[i] = -1;
-            ShapePrunOpt[i] = -1;
-        }
+    }
+
+    static void initShapePrun() {
+        int[] prun = new int[3678 * 2];
+        Arrays.fill(prun, -1);
+        prun[getShape2Idx(0x0db66db)] = 0; //0 110110110110 011011011011
+        prun[getShape2Idx(0x1db6db6)] = 0; //1 110110110110 110110110110
+        prun[getShape2Idx(0x16db6db)] = 0; //1 011011011011 011011011011
+        prun[getShape2Idx(0x06dbdb6)] = 0; //0 011011011011 110110110110
+        initPruning(prun, 4, Search.FACE_TURN_METRIC);
+        ShapePrun = prun;
+    }
 
-        ShapePrun[getShape2Idx(0x0db66db)] = 0; //0 110110110110 011011011011
-        ShapePrun[getShape2Idx(0x1db6db6)] = 0; //1 110110110110 110110110110
-        ShapePrun[getShape2Idx(0x16db6db)] = 0; //1 011011011011 011011011011
-        ShapePrun[getShape2Idx(0x06dbdb6)] = 0; //0 011011011011 110110110110
-        ShapePrunOpt[new FullCube().getShapeIdx()] = 0;
-        initPruning(ShapePrun, 4, Search.FACE_TURN_METRIC);
-        initPruning(ShapePrunOpt, 1, Search.METRIC);
-        inited = true;
+    static void initShapePrunOpt() {
+        int[] prun = new int[3678 * 2];
+        Arrays.fill(prun, -1);
+        prun[new FullCube().getShapeIdx()] = 0;
+        initPruning(prun, 1, Search.METRIC);
+        ShapePrunOpt = prun;
     }
 
 }
@@ -0,0 +1,207 @@
+package cs.sq12phase;
+
+import java.util.Arrays;
+
+/**
+ * Pruning tables on the shape together with the colors of the corners, or of the edges, in the metric of the
+ * optimal solver. The color of a piece is whether it belongs to the top or the bottom layer, and the colors of the
+ * 8 corners (or edges) are taken in the order of their slots, as a mask with a bit per piece that is set for the
+ * bottom ones. There are only 70 such masks, so each table has 3678 * 2 * 70 entries.
+ * Both tables are lower bounds of the distance of a cube, much closer to it than ShapePrunOpt alone: most random
+ * cubes are known to be more than 10 moves away without any search.
+ */
+class ShapeColor {
+    static final int N_COLOR = 70;
+    static final int N_SIZE = 3678 * 2 * N_COLOR;
+
+    /**
+     * How the corners (or the edges) of each of the 3678 shapes are reordered by the twist (0), the top moves (1 to
+     * 11) and the bottom moves (12 to 22): after the move, the i-th of them is the one that was (perm >> 3 * i & 7)-th.
+     */
+    static int[] CornerPerm;
+    static int[] EdgePerm;
+
+    static byte[] CornerPrun;
+    static byte[] EdgePrun;
+
+    /**
+     * ColorIdx[colors] is the index of a mask with 4 bits set, ColorMask[idx] the mask.
+     */
+    static final int[] ColorIdx = new int[256];
+    static final int[] ColorMask = new int[N_COLOR];
+
+    static {
+        Arrays.fill(ColorIdx, -1);
+        for (int colors = 0, idx = 0; colors < 256; colors++) {
+            if (Integer.bitCount(colors) == 4) {
+                ColorIdx[colors] = idx;
+                ColorMask[idx++] = colors;
+            }
+        }
+    }
+
+    private ShapeColor() {}
+
+    /**
+     * @return the colors of the corners (or of the edges) of c.
+     */
+    static int getColors(FullCube c, boolean corner) {
+        int colors = 0;
+        int n = 0;
+        int last = -1;
+        for (int i = 0; i < 24; i++) {
+            int piece = c.pieceAt(i);
+            if ((piece & 1) == (corner ? 1 : 0) && piece != last) {
+                colors |= (piece >> 3) << n++;
+            }
+            last = piece;
+        }
+        return colors;
+    }
+
+    static int getPrun(int shape, int corner, int edge) {
+        return Math.max(CornerPrun[shape * N_COLOR + ColorIdx[corner]], EdgePrun[shape * N_COLOR + ColorIdx[edge]]);
+    }
+
+    /**
+     * @return the colors after the move whose perm is given, see CornerPerm.
+     */
+    static int permute(int perm, int colors) {
+        int ret = 0;
+        for (int i = 0; i < 8; i++) {
+            ret |= (colors >> (perm >> 3 * i & 7) & 1) << i;
+        }
+        return ret;
+    }
+
+    /**
+     * @return the perm of perm1 followed by perm2.
+     */
+    static int compose(int perm1, int perm2) {
+        int ret = 0;
+        for (int i = 0; i < 8; i++) {
+            ret |= (perm1 >> 3 * (perm2 >> 3 * i & 7) & 7) << 3 * i;
+        }
+        return ret;
+    }
+
+    static void initMove() {
+        int[] cornerPerm = new int[3678 * 23];
+        int[] edgePerm = new int[3678 * 23];
+        FullCube c = new FullCube();
+        for (int shape = 0; shape < 3678; shape++) {
+            for (int m = 0; m < 23; m++) {
+                // Number the corners and edges of the shape in the order of their slots, then move them.
+                int value = Shape.ShapeIdx[shape];
+                for (int i = 0, nCorner = 0, nEdge = 0; i < 24; i++) {
+                    if ((value >> (23 - i) & 1) == 0) {
+                        c.setPiece(i, nEdge++ << 1);
+                    } else {
+                        c.setPiece(i, nCorner << 1 | 1);
+                        c.setPiece(++i, nCorner++ << 1 | 1);
+                    }
+                }
+                c.doMove(m <= 11 ? m : 11 - m);
+                int nCorner = 0;
+                int nEdge = 0;
+                int last = -1;
+                for (int i = 0; i < 24; i++) {
+                    int piece = c.pieceAt(i);
+                    if ((piece & 1) == 0) {
+                        edgePerm[shape * 23 + m] |= (piece >> 1) << (3 * nEdge++);
+                    } else if (piece != last) {
+                        cornerPerm[shape * 23 + m] |= (piece >> 1) << (3 * nCorner++);
+                    }
+                    last = piece;
+                }
+            }
+        }
+        CornerPerm = cornerPerm;
+        EdgePerm = edgePerm;
+    }
+
+    static void initCornerPrun() {
+        CornerPrun = initPrun(CornerPerm, true);
+    }
+
+    static void initEdgePrun() {
+        EdgePrun = initPrun(EdgePerm, false);
+    }
+
+    static byte[] initPrun(int[] perm, boolean corner) {
+        byte[] prun = new byte[N_SIZE];
+        Arrays.fill(prun, (byte) -1);
+        FullCube solved = new FullCube();
+        prun[solved.getShapeIdx() * N_COLOR + ColorIdx[getColors(solved, corner)]] = 0;
+        Search.initDone.addAndGet(1);
+        int done = 1;
+        int done0 = 0;
+        int[] moveShape = new int[200];
+        int[] movePerm = new int[200];
+        for (int depth = 0; done != done0; depth++) {
+            done0 = done;
+            // Once most entries are visited, it is cheaper to look for a neighbour of the unvisited ones at depth.
+            boolean inv = done > N_SIZE / 2;
+            int select = inv ? -1 : depth;
+            for (int shape = 0; shape < 3678 * 2; shape++) {
+                int nMoves = -1;
+                for (int i = shape * N_COLOR; i < (shape + 1) * N_COLOR; i++) {
+                    if (prun[i] != select) {
+                        continue;
+                    }
+                    if (nMoves == -1) {
+                        nMoves = getMoves(perm, shape, moveShape, movePerm);
+                    }
+                    int colors = ColorMask[i % N_COLOR];
+                    for (int k = 0; k < nMoves; k++) {
+                        int idx = moveShape[k] * N_COLOR + ColorIdx[permute(movePerm[k], colors)];
+                        if (inv) {
+                            if (prun[idx] == depth) {
+                                prun[i] = (byte) (depth + 1);
+                                done++;
+                                break;
+                            }
+                        } else if (prun[idx] == -1) {
+                            prun[idx] = (byte) (depth + 1);
+                            done++;
+                        }
+                    }
+                }
+            }
+            Search.initDone.addAndGet(done - done0);
+        }
+        return prun;
+    }
+
+    /**
+     * Lists the moves from shape: the twist, and the top and bottom moves, each on their own in the face turn metric,
+     * or together in the WCA one.
+     *
+     * @return the number of moves.
+     */
+    static int getMoves(int[] perm, int shape, int[] moveShape, int[] movePerm) {
+        int n = 0;
+        moveShape[n] = Shape.TwistMove[shape];
+        movePerm[n++] = perm[(shape >> 1) * 23];
+        for (int mt = 0, shapet = shape; mt < 12; ) {
+            int permt = perm[(shape >> 1) * 23 + mt];
+            if (mt != 0) {
+                moveShape[n] = shapet;
+                movePerm[n++] = permt;
+            }
+            if (mt == 0 || Search.METRIC == Search.WCA_TURN_METRIC) {
+                for (int mb = Shape.BottomMove[shapet], shapeb; (mb & 0xf) < 12; mb += Shape.BottomMove[shapeb]) {
+                    shapeb = mb >> 4;
+                    mb &= 0xf;
+                    int permb = perm[(shapet >> 1) * 23 + 11 + mb];
+                    moveShape[n] = shapeb;
+                    movePerm[n++] = mt == 0 ? permb : compose(permt, permb);
+                }
+            }
+            mt += Shape.TopMove[shapet];
+            shapet = mt >> 4;
+            mt &= 0xf;
+        }
+        return n;
+    }
+}
@@ -7,10 +7,10 @@ class Square {
     boolean botEdgeFirst;   //true if bottom layer starts with edge right of seam
     int ml;         //shape of middle layer (+/-1, or 0 if ignored)
 
-    static byte[] SquarePrun = new byte[40320 * 2];         //pruning table; #twists to solve corner|edge permutation
-    static char[] TwistMove = new char[40320];          //transition table for twists
-    static char[] TopMove = new char[40320];            //transition table for top layer turns
-    static char[] BottomMove = new char[40320];         //transition table for bottom layer turns
+    static byte[] SquarePrun;           //pruning table; #twists to solve corner|edge permutation
+    static char[] TwistMove;            //transition table for twists
+    static char[] TopMove;              //transition table for top layer turns
+    static char[] BottomMove;           //transition table for bottom layer turns
 
     private static int[] fact = {1, 1, 2, 6, 24, 120, 720, 5040};
 
@@ -51,12 +51,7 @@ class Square {
         return idx;
     }
 
-    static boolean inited = false;
-
-    static void init() {
-        if (inited) {
-            return;
-        }
+    static void initMove() {
         for (int i = 0; i < 12; i++) {
             Cnk[i][0] = 1;
             Cnk[i][i] = 1;
@@ -64,6 +59,9 @@ class Square {
                 Cnk[i][j] = Cnk[i - 1][j - 1] + Cnk[i - 1][j];
             }
         }
+        TwistMove = new char[40320];
+        TopMove = new char[40320];
+        BottomMove = new char[40320];
         byte[] pos = new byte[8];
         byte temp;
 
@@ -85,21 +83,26 @@ class Square {
             temp = pos[4]; pos[4] = pos[5]; pos[5] = pos[6]; pos[6] = pos[7]; pos[7] = temp;
             BottomMove[i] = get8Perm(pos);
         }
+    }
 
+    static void initPrun() {
+        byte[] prun = new byte[40320 * 2];
         for (int i = 0; i < 40320 * 2; i++) {
-            SquarePrun[i] = -1;
+            prun[i] = -1;
         }
-        SquarePrun[0] = 0;
+        prun[0] = 0;
         int depth = 0;
         int done = 1;
+        Search.initDone.addAndGet(done);
         while (done < 40320 * 2) {
+            int done0 = done;
             boolean inv = depth >= 11;
             int find = inv ? -1 : depth;
             int check = inv ? depth : -1;
             ++depth;
             OUT:
             for (int i = 0; i < 40320 * 2; i++) {
-                if (SquarePrun[i] != find) {
+                if (prun[i] != find) {
                     continue;
                 }
                 int perm = i >> 1;
@@ -107,9 +110,9 @@ class Square {
 
                 //try twist
                 int idx = TwistMove[perm] << 1 | (1 - ml);
-                if (SquarePrun[idx] == check) {
+                if (prun[idx] == check) {
                     ++done;
-                    SquarePrun[inv ? i : idx] = (byte) (depth);
+                    prun[inv ? i : idx] = (byte) (depth);
                     if (inv) {
                         continue OUT;
                     }
@@ -118,9 +121,9 @@ class Square {
                 for (int m = 0; m < 4; m++) {
                     perm = TopMove[perm];
                     idx = perm << 1 | ml;
-                    if (SquarePrun[idx] == check) {
+                    if (prun[idx] == check) {
                         ++done;
-                        SquarePrun[inv ? i : idx] = (byte) (depth);
+                        prun[inv ? i : idx] = (byte) (depth);
                         if (inv) {
                             continue OUT;
                         }
@@ -129,16 +132,17 @@ class Square {
                 //try turning bottom layer
                 for (int m = 0; m < 4; m++) {
                     perm = BottomMove[perm];
-                    if (SquarePrun[perm << 1 | ml] == check) {
+                    if (prun[perm << 1 | ml] == check) {
                         ++done;
-                        SquarePrun[inv ? i : (perm << 1 | ml)] = (byte) (depth);
+                        prun[inv ? i : (perm << 1 | ml)] = (byte) (depth);
                         if (inv) {
                             continue OUT;
                         }
                     }
                 }
             }
+            Search.initDone.addAndGet(done - done0);
         }
-        inited = true;
+        SquarePrun = prun;
     }
 }
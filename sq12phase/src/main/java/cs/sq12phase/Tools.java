@@ -0,0 +1,67 @@
+package cs.sq12phase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class Tools {
+    private static void read(int[] arr, DataInput in) throws IOException {
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = in.readByte();
+        }
+    }
+
+    private static void write(int[] arr, DataOutput out) throws IOException {
+        for (int i = 0; i < arr.length; i++) {
+            out.writeByte(arr[i]);
+        }
+    }
+
+    /**
+     * Loads the pruning tables saved by saveTo(...) instead of building them. The move tables are cheap and are
+     * built as usual. Does nothing if the tables are built already.
+     */
+    public static void initFrom(DataInput in) throws IOException {
+        synchronized (Search.class) {
+            if (Search.inited) {
+                return;
+            }
+            if (in.readInt() != Search.N_PRUN) {
+                throw new IOException("Not a Square-1 pruning table");
+            }
+            int[] shapePrun = new int[3678 * 2];
+            int[] shapePrunOpt = new int[3678 * 2];
+            byte[] squarePrun = new byte[40320 * 2];
+            byte[] cornerPrun = new byte[ShapeColor.N_SIZE];
+            byte[] edgePrun = new byte[ShapeColor.N_SIZE];
+            read(shapePrun, in);
+            read(shapePrunOpt, in);
+            in.readFully(squarePrun);
+            in.readFully(cornerPrun);
+            in.readFully(edgePrun);
+
+            Shape.initMove();
+            Square.initMove();
+            ShapeColor.initMove();
+            Shape.ShapePrun = shapePrun;
+            Shape.ShapePrunOpt = shapePrunOpt;
+            Square.SquarePrun = squarePrun;
+            ShapeColor.CornerPrun = cornerPrun;
+            ShapeColor.EdgePrun = edgePrun;
+            Search.lastUsed = System.currentTimeMillis();
+            Search.inited = true;
+        }
+    }
+
+    public static void saveTo(DataOutput out) throws IOException {
+        synchronized (Search.class) {
+            Search.init();
+            out.writeInt(Search.N_PRUN);
+            write(Shape.ShapePrun, out);
+            write(Shape.ShapePrunOpt, out);
+            out.write(Square.SquarePrun);
+            out.write(ShapeColor.CornerPrun);
+            out.write(ShapeColor.EdgePrun);
+        }
+    }
+}
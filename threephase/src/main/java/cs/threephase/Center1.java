@@ -16,16 +16,20 @@ import java.util.*;
 */
 
 final class Center1 {
-	static int[][] ctsmv = new int[15582][36];
+	static int[] ctsmv;
 	static int[] sym2raw = new int[15582];
-	static byte[] csprun = new byte[15582];
+	static byte[] csprun;
 
 	static int[][] symmult = new int[48][48];
 	static int[][] symmove = new int[48][36];
 	static int[] syminv = new int[48];
 	static int[] finish = new int[48];
 
-	static int[] raw2sym;
+	/**
+	 * The raw to sym coordinate map is only needed to build ctsmv. It is built for RAW_BLOCK raw coordinates at a
+	 * time, rather than for all 735471 of them at once.
+	 */
+	static final int RAW_BLOCK = 1 << 18;
 
 	static void initSym2Raw() {
 		Center1 c = new Center1();
@@ -37,9 +41,6 @@ final class Center1 {
 				for (int j=0; j<48; j++) {
 					int idx = c.get();
 					occ[idx>>>5] |= (1<<(idx&0x1f));
-					if (raw2sym != null) {
-						raw2sym[idx] = count << 6 | syminv[j];
-					}
 					c.rot(0);
 					if (j%2==1) c.rot(1);
 					if (j%8==7) c.rot(2);
@@ -52,6 +53,7 @@ final class Center1 {
 	}
 
 	static void createPrun() {
+		csprun = new byte[15582];
 		Arrays.fill(csprun, (byte)-1);
 		csprun[0] = 0;
 		int depth = 0;
@@ -67,7 +69,7 @@ final class Center1 {
 					continue;
 				}
 				for (int m=0; m<27; m++) {
-					int idx = ctsmv[i][m] >>> 6;
+					int idx = ctsmv[i * 36 + m] >>> 6;
 					if (csprun[idx] != check) {
 						continue;
 					}
@@ -86,14 +88,39 @@ final class Center1 {
 	}
 
 	static void createMoveTable() {
+		ctsmv = new int[15582 * 36];
 		Center1 c = new Center1();
 		Center1 d = new Center1();
+		// The raw coordinates of the neighbours first, complemented so they cannot be mistaken for sym coordinates.
 		for (int i=0; i<15582; i++) {
 			d.set(sym2raw[i]);
 			for (int m=0; m<36; m++) {
 				c.set(d);
 				c.move(m);
-				ctsmv[i][m] = c.getsym();
+				ctsmv[i * 36 + m] = ~c.get();
+			}
+		}
+		int[] raw2sym = new int[RAW_BLOCK];
+		for (int lo=0; lo<735471; lo+=RAW_BLOCK) {
+			int hi = lo + RAW_BLOCK;
+			for (int i=0; i<15582; i++) {
+				c.set(sym2raw[i]);
+				for (int j=0; j<48; j++) {
+					int idx = c.get();
+					if (idx >= lo && idx < hi) {
+						raw2sym[idx - lo] = i << 6 | syminv[j];
+					}
+					c.rot(0);
+					if (j%2==1) c.rot(1);
+					if (j%8==7) c.rot(2);
+					if (j%16==15) c.rot(3);
+				}
+			}
+			for (int i=0; i<ctsmv.length; i++) {
+				int idx = ~ctsmv[i];
+				if (idx >= lo && idx < hi) {
+					ctsmv[i] = raw2sym[idx - lo];
+				}
 			}
 		}
 	}
@@ -199,9 +226,6 @@ final class Center1 {
 	}
 
 	int getsym() {
-		if (raw2sym != null) {
-			return raw2sym[get()];
-		}
 		for (int j=0; j<48; j++) {
 			int cord = raw2sym(get());
 			if (cord != -1)
@@ -19,15 +19,18 @@ class Center2 {
     int parity = 0;
 
     static int[][] rlmv = new int[70][28];
-    static char[][] ctmv = new char[6435][28];
+    static char[] ctmv;
     static int[][] rlrot = new int[70][16];
-    static char[][] ctrot = new char[6435][16];
-    static byte[] ctprun = new byte[6435*35*2];
+    static char[][] ctrot;
+    static byte[] ctprun;
 
     private static int[] pmv = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 1,
         0, 0, 0, 0, 0, 0, 1, 0, 1, 0, 0, 0};
 
     static void init() {
+        ctmv = new char[6435 * 28];
+        ctrot = new char[6435][16];
+        ctprun = new byte[6435*35*2];
         Center2 c = new Center2();
 
         for (int i=0; i<35*2; i++) {
@@ -62,7 +65,7 @@ class Center2 {
             for (int m=0; m<28; m++) {
                 c.setct(i);
                 c.move(move2std[m]);
-                ctmv[i][m] = (char) c.getct();
+                ctmv[i * 28 + m] = (char) c.getct();
             }
         }
         Arrays.fill(ctprun, (byte)-1);
@@ -78,7 +81,7 @@ class Center2 {
                 int ct = i / 70;
                 int rl = i % 70;
                 for (int m=0; m<23; m++) {
-                    int ctx = ctmv[ct][m];
+                    int ctx = ctmv[ct * 28 + m];
                     int rlx = rlmv[rl][m];
                     int idx = ctx * 70 + rlx;
                     if (ctprun[idx] == -1) {
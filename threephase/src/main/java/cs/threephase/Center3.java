@@ -18,10 +18,10 @@ import java.util.*;
 
 class Center3 {
 
-	static char[][] ctmove = new char[35*35*12*2][20];
+	static char[] ctmove;
 	static int[] pmove = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 1};
 
-	static byte[] prun = new byte[35*35*12*2];
+	static byte[] prun;
 
 	static int[] rl2std = {0, 9, 14, 23, 27, 28, 41, 42, 46, 55, 60, 69};
 	static int[] std2rl = new int[70];
@@ -33,6 +33,8 @@ class Center3 {
 	int parity = 0;
 
 	static void init() {
+		ctmove = new char[35*35*12*2 * 20];
+		prun = new byte[35*35*12*2];
 		for (int i=0; i<12; i++) {
 			std2rl[rl2std[i]] = i;
 		}
@@ -42,7 +44,7 @@ class Center3 {
 			for (int m=0; m<20; m++) {
 				c.setct(i);
 				c.move(m);
-				ctmove[i][m] = (char)c.getct();
+				ctmove[i * 20 + m] = (char)c.getct();
 			}
 		}
 
@@ -56,8 +58,8 @@ class Center3 {
 					continue;
 				}
 				for (int m=0; m<17; m++) {
-					if (prun[ctmove[i][m]] == -1) {
-						prun[ctmove[i][m]] = (byte)(depth+1);
+					if (prun[ctmove[i * 20 + m]] == -1) {
+						prun[ctmove[i * 20 + m]] = (byte)(depth+1);
 						done++;
 					}
 				}
@@ -1,6 +1,10 @@
 package cs.threephase;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import static cs.threephase.Util.*;
 
 /*
@@ -28,7 +32,7 @@ public class Edge3 {
 
 	static final int[] prunValues = {1, 4, 16, 55, 324, 1922, 12275, 77640, 485359, 2778197, 11742425, 27492416, 31002941, 31006080};
 
-	static int[] eprun = new int[N_EPRUN / 16];
+	static int[] eprun;
 
 	static int[] sym2raw = new int[N_SYM];
 	static char[] symstate = new char[N_SYM];
@@ -46,10 +50,10 @@ public class Edge3 {
 
 	static int[] factX = {1, 1, 2/2, 6/2, 24/2, 120/2, 720/2, 5040/2, 40320/2, 362880/2, 3628800/2, 39916800/2, 479001600/2};
 
-	static int done = 0;
+	static final AtomicInteger done = new AtomicInteger();
 
 	public static double initStatus() {
-		return done * 1.0 / prunValues[MAX_DEPTH - 1];
+		return done.get() * 1.0 / prunValues[MAX_DEPTH - 1];
 	}
 
 	static void initMvrot() {
@@ -148,17 +152,21 @@ public class Edge3 {
 		return depth;
 	}
 
-	static void createPrun() {
-		Edge3 e = new Edge3();
-		Edge3 f = new Edge3();
-		Edge3 g = new Edge3();
+	/**
+	 * Whether createPrun() splits each depth over the threads of the common ForkJoinPool. The table is the same.
+	 */
+	static volatile boolean parallelInit = Runtime.getRuntime().availableProcessors() > 1;
 
+	static void createPrun() {
+		eprun = new int[N_EPRUN / 16];
 		Arrays.fill(eprun, -1);
 		int depth = 0;
-		done = 1;
+		done.set(1);
 		setPruning(eprun, 0, 0);
 
-		while (done != N_EPRUN) {
+		// A parallel build works on one atomic copy of eprun from the first depth to the last.
+		AtomicIntegerArray table = parallelInit ? new AtomicIntegerArray(eprun) : null;
+		while (done.get() != N_EPRUN) {
 			boolean inv = depth > 9;
 			int depm3 = depth % 3;
 			int dep1m3 = (depth + 1) % 3;
@@ -169,12 +177,91 @@ public class Edge3 {
 				break;
 			}
 
-			for (int i_=0; i_<N_EPRUN; i_+=16) {
-				int val = eprun[i_ >> 4];
+			if (table != null) {
+				ForkJoinPool.commonPool().invoke(new PrunScan(0, eprun.length, inv, find, chk, dep1m3, table));
+			} else {
+				PrunScan scan = new PrunScan(0, eprun.length, inv, find, chk, dep1m3, null);
+				for (int i=0; i<eprun.length; i+=PrunScan.THRESHOLD) {
+					scan.scan(i, Math.min(i + PrunScan.THRESHOLD, eprun.length));
+				}
+			}
+			depth++;
+		}
+		if (table != null) {
+			for (int i=0; i<eprun.length; i++) {
+				eprun[i] = table.get(i);
+			}
+		}
+	}
+
+	/**
+	 * Sets the pruning value at index from expect to value, unless another thread got there first.
+	 */
+	static boolean casPruning(AtomicIntegerArray table, int index, int expect, int value) {
+		int shift = (index & 0xf) << 1;
+		while (true) {
+			int val = table.get(index >> 4);
+			if ((val >> shift & 0x3) != expect) {
+				return false;
+			}
+			if (table.compareAndSet(index >> 4, val, val ^ (expect ^ value) << shift)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Expands the entries of one depth whose words of eprun lie in [start, end). Entries are only ever changed from
+	 * chk to the next depth, and that does not make them candidates of the same depth, so the table does not depend
+	 * on how the words are split between threads. The threads share a copy of eprun in table, which is null when the
+	 * scan runs on a single thread.
+	 */
+	@SuppressWarnings("serial")
+	static final class PrunScan extends RecursiveTask<Void> {
+		static final int THRESHOLD = 1 << 12;
+
+		final int start;
+		final int end;
+		final boolean inv;
+		final int find;
+		final int chk;
+		final int dep1m3;
+		final AtomicIntegerArray table;
+
+		PrunScan(int start, int end, boolean inv, int find, int chk, int dep1m3, AtomicIntegerArray table) {
+			this.start = start;
+			this.end = end;
+			this.inv = inv;
+			this.find = find;
+			this.chk = chk;
+			this.dep1m3 = dep1m3;
+			this.table = table;
+		}
+
+		@Override
+		protected Void compute() {
+			if (end - start <= THRESHOLD) {
+				scan(start, end);
+				return null;
+			}
+			int mid = (start + end) >>> 1;
+			invokeAll(new PrunScan(start, mid, inv, find, chk, dep1m3, table),
+					new PrunScan(mid, end, inv, find, chk, dep1m3, table));
+			return null;
+		}
+
+		void scan(int start, int end) {
+			Edge3 e = new Edge3();
+			Edge3 f = new Edge3();
+			Edge3 g = new Edge3();
+			int count = 0;
+
+			for (int w=start; w<end; w++) {
+				int val = getWord(w);
 				if (!inv && val == -1) {
 					continue;
 				}
-				for (int i=i_, end=i_+16; i<end; i++, val>>=2) {
+				for (int i=w<<4, iend=i+16; i<iend; i++, val>>=2) {
 					if ((val & 0x3) != find) {
 						continue;
 					}
@@ -190,17 +277,17 @@ public class Edge3 {
 						symcord1x >>= 3;
 						int cord2x = getmvrot(e.edge, m<<3|symx, 10) % N_RAW;
 						int idx = symcord1x * N_RAW + cord2x;
-						if (getPruning(eprun, idx) != chk) {
+						if (inv) {
+							if (getPruning(idx) == chk && mark(i, 0x3)) {
+								count++;
+								break;
+							}
 							continue;
 						}
-						setPruning(eprun, inv ? i : idx, dep1m3);
-						done++;
-						// if ((done & 0x3ffff) == 0) {
-						// 	System.out.print(String.format("%d\r", done));
-						// }
-						if (inv) {
-							break;
+						if (!mark(idx, chk)) {
+							continue;
 						}
+						count++;
 						char symState = symstate[symcord1x];
 						if (symState == 1){
 							continue;
@@ -215,18 +302,33 @@ public class Edge3 {
 							g.set(f);
 							g.rotate(j);
 							int idxx = symcord1x * N_RAW + g.get(10) % N_RAW;
-							if (getPruning(eprun, idxx) == chk) {
-								setPruning(eprun, idxx, dep1m3);
-								done++;
-								// if ((done & 0x3ffff) == 0) {
-								// 	System.out.print(String.format("%d\r", done));
-								// }
+							if (mark(idxx, chk)) {
+								count++;
 							}
 						}
 					}
 				}
 			}
-			depth++;
+			done.addAndGet(count);
+		}
+
+		int getWord(int w) {
+			return table != null ? table.get(w) : eprun[w];
+		}
+
+		int getPruning(int index) {
+			return (getWord(index >> 4) >> ((index & 0xf) << 1)) & 0x3;
+		}
+
+		boolean mark(int index, int expect) {
+			if (table != null) {
+				return casPruning(table, index, expect, dep1m3);
+			}
+			if (getPruning(index) != expect) {
+				return false;
+			}
+			setPruning(eprun, index, dep1m3);
+			return true;
 		}
 	}
 
@@ -290,6 +290,67 @@ public class FullCube implements Comparable<FullCube> {
 		return new String(ret);
 	}
 
+	static final byte[][] edge333Facelet = { { U6, R2 }, { U8, F2 }, { U4, L2 }, { U2, B2 }, { D6, R8 }, { D2, F8 },
+		{ D4, L8 }, { D8, B8 }, { F6, R4 }, { F4, L6 }, { B6, L4 }, { B4, R6 } };
+
+	/**
+	 * The corners and edges of a reduced cube, as those of a 3x3x3 whose faces are given by its centers, in the
+	 * order of cs.min2phase.Search.solveCubies(...).
+	 */
+	void to333Cubies(byte[] cp, byte[] co, byte[] ep, byte[] eo) {
+		EdgeCube edge = getEdge();
+		CenterCube center = getCenter();
+		CornerCube corner = getCorner();
+
+		byte[] face = new byte[6];
+		for (int i=0; i<6; i++) {
+			face[center.ct[CenterCube.center333Map[i] << 2]] = (byte) i;
+		}
+		byte[] f = new byte[54];
+		for (int i=0; i<24; i++) {
+			f[EdgeCube.EdgeMap[i]] = face[EdgeCube.EdgeColor[edge.ep[i] % 12][edge.ep[i] / 12]];
+		}
+		for (int corn=0; corn<8; corn++) {
+			int j = corner.cp[corn];
+			int ori = corner.co[corn];
+			for (int n=0; n<3; n++) {
+				f[CornerCube.cornerFacelet[corn][(n + ori) % 3]] = face[CornerCube.cornerFacelet[j][n] / 9];
+			}
+		}
+
+		for (int i=0; i<8; i++) {
+			int ori = 0;
+			while (ori < 2 && f[CornerCube.cornerFacelet[i][ori]] != U && f[CornerCube.cornerFacelet[i][ori]] != D) {
+				ori++;
+			}
+			int col1 = f[CornerCube.cornerFacelet[i][(ori + 1) % 3]];
+			int col2 = f[CornerCube.cornerFacelet[i][(ori + 2) % 3]];
+			for (int j=0; j<8; j++) {
+				if (col1 == CornerCube.cornerFacelet[j][1] / 9 && col2 == CornerCube.cornerFacelet[j][2] / 9) {
+					cp[i] = (byte) j;
+					co[i] = (byte) ori;
+					break;
+				}
+			}
+		}
+		for (int i=0; i<12; i++) {
+			int col0 = f[edge333Facelet[i][0]];
+			int col1 = f[edge333Facelet[i][1]];
+			for (int j=0; j<12; j++) {
+				if (col0 == edge333Facelet[j][0] / 9 && col1 == edge333Facelet[j][1] / 9) {
+					ep[i] = (byte) j;
+					eo[i] = 0;
+					break;
+				}
+				if (col0 == edge333Facelet[j][1] / 9 && col1 == edge333Facelet[j][0] / 9) {
+					ep[i] = (byte) j;
+					eo[i] = 1;
+					break;
+				}
+			}
+		}
+	}
+
 	byte[] moveBuffer = new byte[60];
 	private int moveLength = 0;
 	private int edgeAvail = 0;
@@ -24,17 +24,80 @@ import static cs.threephase.Center1.ctsmv;
 import static cs.threephase.Center1.csprun;
 import static cs.threephase.Center1.symmove;
 
+import cs.min2phase.SearchPool;
+
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Search {
-	static final int PHASE1_SOLUTIONS = 10000;
-	static final int PHASE2_ATTEMPTS = 500;
-	static final int PHASE2_SOLUTIONS = 100;
-	static final int PHASE3_ATTEMPTS = 100;
 
-	static boolean inited = false;
+	/**
+	 * The limits of the search, which trade the length of the scrambles for time.
+	 */
+	public enum Profile {
+		/**
+		 * About twice as fast as BALANCED, with scrambles about 2 moves longer, for practice scrambles.
+		 */
+		FAST(300, 30, 10, 10, 100000, 0),
+		BALANCED(10000, 500, 100, 100, 1000000, 500),
+		/**
+		 * Scrambles about 1 move shorter than BALANCED, at about 3 times the cost.
+		 */
+		SHORT(30000, 1500, 300, 300, 1000000, 5000);
+
+		/**
+		 * The number of phase 1 solutions to look at, of which the best phase2Attempts are kept for phase 2.
+		 */
+		final int phase1Solutions;
+		final int phase2Attempts;
+		/**
+		 * The number of phase 2 solutions to collect, of which the best phase3Attempts are tried in phase 3.
+		 */
+		final int phase2Solutions;
+		final int phase3Attempts;
+		/**
+		 * probeMax and probeMin of the 3x3x3 stage, see cs.min2phase.Search.solution(...).
+		 */
+		final int probeMax;
+		final int probeMin;
+
+		Profile(int phase1Solutions, int phase2Attempts, int phase2Solutions, int phase3Attempts,
+				int probeMax, int probeMin) {
+			this.phase1Solutions = phase1Solutions;
+			this.phase2Attempts = phase2Attempts;
+			this.phase2Solutions = phase2Solutions;
+			this.phase3Attempts = phase3Attempts;
+			this.probeMax = probeMax;
+			this.probeMin = probeMin;
+		}
+	}
 
-	PriorityQueue<FullCube> p1sols = new PriorityQueue<FullCube>(PHASE2_ATTEMPTS, new FullCube.ValueComparator());
+	Profile profile = Profile.BALANCED;
+
+	static volatile boolean inited = false;
+
+	/**
+	 * The reductions running right now, which keep releaseTables() from dropping the tables under them.
+	 */
+	static final AtomicInteger activeSearches = new AtomicInteger();
+	static volatile long lastUsed = 0;
+
+	/**
+	 * The best phase 1 solutions, up to phase2Attempts of the profile, kept as a max-heap on value, so the worst one is replaced first.
+	 * A solution is only its moves and scores, the cube is rebuilt from c when phase 2 expands it.
+	 */
+	static final int P1_MOVES = 15;
+	int[] p1Heap;
+	int p1Size = 0;
+	int[] p1Value;
+	int[] p1Length1;
+	boolean[] p1Add1;
+	int[] p1Sym;
+	byte[] p1Moves;
+	int[] p1Order;
+	int[] p1Count = new int[128];
 
 	static int[] count = new int[1];
 
@@ -53,35 +116,119 @@ public class Search {
 	Edge3 e12 = new Edge3();
 	Edge3[] tempe = new Edge3[20];
 
-	cs.min2phase.Search search333 = new cs.min2phase.Search();
+	/**
+	 * The min2phase searchers shared by all the threephase ones, at most one per available processor.
+	 */
+	static final SearchPool<cs.min2phase.Search> search333 = new SearchPool<>(cs.min2phase.Search::new);
 
 	int valid1 = 0;
 	String solution = "";
 
 	int p1SolsCnt = 0;
-	FullCube[] arr2 = new FullCube[PHASE2_SOLUTIONS];
+	FullCube[] arr2;
 	int arr2idx = 0;
 
 	public boolean inverse_solution = true;
 	public boolean with_rotation = false;
 
+	/**
+	 * Parallel exploration of the phase 2 and phase 3 candidates, see setParallelism(...).
+	 * The workers are searchers themselves, sharing the phase 1 solutions of their owner.
+	 */
+	int parallelism = 1;
+	Search[] workers;
+	Search owner;
+	final AtomicInteger nextTask = new AtomicInteger();
+	/**
+	 * Candidates from stopTask on are no longer needed. It only decreases during a bound level.
+	 */
+	volatile int stopTask;
+	int task;
+	int[] p2Counts;
+	int p2Done;
+	int p2Found;
+	int[] bestMove3 = new int[20];
+
 	public Search() {
 		for (int i=0; i<20; i++) {
 			tempe[i] = new Edge3();
 		}
+		setProfile(Profile.BALANCED);
 	}
 
-	public synchronized static void init() {
+	Search(Search owner) {
+		this();
+		this.owner = owner;
+		setProfile(owner.profile);
+		p1Value = owner.p1Value;
+		p1Length1 = owner.p1Length1;
+		p1Add1 = owner.p1Add1;
+		p1Sym = owner.p1Sym;
+		p1Moves = owner.p1Moves;
+		p1Order = owner.p1Order;
+	}
+
+	/**
+	 * Chooses the limits of the search, BALANCED by default.
+	 */
+	public void setProfile(Profile profile) {
+		if (this.profile == profile && arr2 != null) {
+			return;
+		}
+		this.profile = profile;
+		p1Heap = new int[profile.phase2Attempts];
+		p1Value = new int[profile.phase2Attempts];
+		p1Length1 = new int[profile.phase2Attempts];
+		p1Add1 = new boolean[profile.phase2Attempts];
+		p1Sym = new int[profile.phase2Attempts];
+		p1Moves = new byte[profile.phase2Attempts * P1_MOVES];
+		p1Order = new int[profile.phase2Attempts];
+		p2Counts = new int[profile.phase2Attempts];
+		arr2 = new FullCube[profile.phase2Solutions];
+		if (workers != null) {
+			setParallelism(parallelism);
+		}
+	}
+
+	public Profile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Lets the candidates of each bound in phase 2 and phase 3 be explored by the given number of workers on the
+	 * common ForkJoinPool, which cuts the latency of a single scramble on multi-core machines.
+	 * The candidates are still chosen in the sequential order, so the solution is the same for any parallelism.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+		if (parallelism == 1) {
+			workers = null;
+			return;
+		}
+		workers = new Search[parallelism];
+		for (int i=0; i<parallelism; i++) {
+			workers[i] = new Search(this);
+		}
+	}
+
+	public static void init() {
+		if (!inited) {
+			initTables();
+		}
+	}
+
+	synchronized static void initTables() {
 		if (inited) {
 			return;
 		}
 		cs.min2phase.Search.init();
 
 		Center1.initSym();
-		Center1.raw2sym = new int[735471];
 		Center1.initSym2Raw();
 		Center1.createMoveTable();
-		Center1.raw2sym = null;
 		Center1.createPrun();
 
 		Center2.init();
@@ -92,9 +239,71 @@ public class Search {
 		Edge3.initRaw2Sym();
 		Edge3.createPrun();
 
+		lastUsed = System.currentTimeMillis();
 		inited = true;
 	}
 
+	/**
+	 * Drops the center and edge tables of phases 1 to 3 to free their memory, about 12MB. They are built again by the
+	 * next reduction, even if they were loaded by Tools.initFrom(...). The 3x3x3 tables are min2phase's, see
+	 * cs.min2phase.Search.releaseTables().
+	 * inited is reset before activeSearches is read, and a reduction is counted before it reads inited, so either
+	 * this sees the reduction and gives up, or the reduction waits in initTables() until the tables are dropped and
+	 * then builds them again.
+	 *
+	 * @return false if a reduction was running, in which case the tables are kept.
+	 */
+	public synchronized static boolean releaseTables() {
+		boolean wasInited = inited;
+		inited = false;
+		if (activeSearches.get() != 0) {
+			inited = wasInited;
+			return false;
+		}
+		Center1.ctsmv = null;
+		Center1.csprun = null;
+		Center2.ctmv = null;
+		Center2.ctrot = null;
+		Center2.ctprun = null;
+		Center3.ctmove = null;
+		Center3.prun = null;
+		Edge3.eprun = null;
+		Edge3.done.set(0);
+		return true;
+	}
+
+	/**
+	 * @return the number of bytes taken up by the tables releaseTables() drops.
+	 */
+	public synchronized static long tableBytes() {
+		long bytes = 0;
+		bytes += Center1.ctsmv == null ? 0 : Center1.ctsmv.length * 4L;
+		bytes += Center1.csprun == null ? 0 : Center1.csprun.length;
+		bytes += Center2.ctmv == null ? 0 : Center2.ctmv.length * 2L;
+		bytes += Center2.ctrot == null ? 0 : Center2.ctrot.length * 16 * 2L;
+		bytes += Center2.ctprun == null ? 0 : Center2.ctprun.length;
+		bytes += Center3.ctmove == null ? 0 : Center3.ctmove.length * 2L;
+		bytes += Center3.prun == null ? 0 : Center3.prun.length;
+		bytes += Edge3.eprun == null ? 0 : Edge3.eprun.length * 4L;
+		return bytes;
+	}
+
+	/**
+	 * @return the value of System.currentTimeMillis() when the last reduction finished or the tables
+	 * were built, or 0 if neither happened yet.
+	 */
+	public static long lastUsed() {
+		return lastUsed;
+	}
+
+	/**
+	 * Chooses whether the edge pruning table is built on all available cores, which is the default on multi-core
+	 * machines, or on the calling thread only. The table comes out identical either way.
+	 */
+	public static void setParallelInit(boolean parallelInit) {
+		Edge3.parallelInit = parallelInit;
+	}
+
 	public String randomMove(Random r) {
 		int[] moveseq = new int[40];
 		int lm = 36;
@@ -139,8 +348,24 @@ public class Search {
 	int totlen = 0;
 
 	void doSearch() {
-		init();
-		solution = "";
+		solution = solveReduced(reduce());
+	}
+
+	/**
+	 * Reduces the 4x4x4 cube c to a 3x3x3 cube, with phases 1 to 3.
+	 */
+	FullCube reduce() {
+		activeSearches.incrementAndGet();
+		try {
+			init();
+			return search123();
+		} finally {
+			lastUsed = System.currentTimeMillis();
+			activeSearches.decrementAndGet();
+		}
+	}
+
+	private FullCube search123() {
 		int ud = new Center1(c.getCenter(), 0).getsym();
 		int fb = new Center1(c.getCenter(), 1).getsym();
 		int rl = new Center1(c.getCenter(), 2).getsym();
@@ -150,7 +375,7 @@ public class Search {
 
 		p1SolsCnt = 0;
 		arr2idx = 0;
-		p1sols.clear();
+		p1Size = 0;
 
 		for (length1=Math.min(Math.min(udprun, fbprun), rlprun); length1<100; length1++) {
 			if (rlprun <= length1 && search1(rl>>>6, rl&0x3f, length1, -1, 0)
@@ -160,27 +385,33 @@ public class Search {
 			}
 		}
 
-		FullCube[] p1SolsArr = p1sols.toArray(new FullCube[0]);
-		Arrays.sort(p1SolsArr, 0, p1SolsArr.length);
+		sortPhase1();
 
 		int MAX_LENGTH2 = 9;
 		int length12;
 		do {
 			OUT:
-			for (length12=p1SolsArr[0].value; length12<100; length12++) {
-				for (int i=0; i<p1SolsArr.length; i++) {
-					if (p1SolsArr[i].value > length12) {
+			for (length12=p1Value[p1Order[0]]; length12<100; length12++) {
+				if (workers != null) {
+					if (phase2Parallel(length12, MAX_LENGTH2)) {
+						break OUT;
+					}
+					continue;
+				}
+				for (int i=0; i<p1Size; i++) {
+					int sol = p1Order[i];
+					if (p1Value[sol] > length12) {
 						break;
 					}
-					if (length12 - p1SolsArr[i].length1 > MAX_LENGTH2) {
+					if (length12 - p1Length1[sol] > MAX_LENGTH2) {
 						continue;
 					}
-					c1.copy(p1SolsArr[i]);
+					loadPhase1(sol);
 					ct2.set(c1.getCenter(), c1.getEdge().getParity());
 					int s2ct = ct2.getct();
 					int s2rl = ct2.getrl();
-					length1 = p1SolsArr[i].length1;
-					length2 = length12 - p1SolsArr[i].length1;
+					length1 = p1Length1[sol];
+					length2 = length12 - p1Length1[sol];
 
 					if (search2(s2ct, s2rl, length2, 28, 0)) {
 						break OUT;
@@ -197,7 +428,16 @@ public class Search {
 		do {
 			OUT2:
 			for (length123=arr2[0].value; length123<100; length123++) {
-				for (int i=0; i<Math.min(arr2idx, PHASE3_ATTEMPTS); i++) {
+				if (workers != null) {
+					index = phase3Parallel(length123, MAX_LENGTH3);
+					if (index != -1) {
+						System.arraycopy(bestMove3, 0, move3, 0, bestMove3.length);
+						break OUT2;
+					}
+					index = 0;
+					continue;
+				}
+				for (int i=0; i<Math.min(arr2idx, profile.phase3Attempts); i++) {
 					if (arr2[i].value > length123) {
 						break;
 					}
@@ -232,24 +472,42 @@ public class Search {
 		for (int i=0; i<length; i++) {
 			solcube.move(move3std[move3[i]]);
 		}
+		solcube.length3 = length;
+		return solcube;
+	}
 
-		String facelet = solcube.to333Facelet();
-		String sol = search333.solution(facelet, 21, 1000000, 500, 0);
-		int len333 = search333.length();
-		if (sol.startsWith("Error")) {
-			System.out.println(sol);
+	/**
+	 * The first stage of a scramble, split from the 3x3x3 stage so they can run on different threads.
+	 * @param c the cube to scramble, e.g. new FullCube(random).
+	 * @return the reduced cube, to be passed to solveReduced(...) of any searcher.
+	 */
+	public FullCube reduce(FullCube c) {
+		this.c = c;
+		return reduce();
+	}
+
+	/**
+	 * Solves the 3x3x3 stage of a reduced cube.
+	 * @return the whole solution, which is the scramble of the cube given to reduce(...) as solution() would return it.
+	 */
+	public String solveReduced(FullCube solcube) {
+		byte[] cp = new byte[8];
+		byte[] co = new byte[8];
+		byte[] ep = new byte[12];
+		byte[] eo = new byte[12];
+		solcube.to333Cubies(cp, co, ep, eo);
+		int[] sol333 = search333.apply(searcher -> searcher.solveCubies(cp, co, ep, eo, 21, profile.probeMax, profile.probeMin, 0));
+		if (sol333 == null) {
 			System.out.println(solcube);
-			System.out.println(facelet);
 			throw new RuntimeException();
 		}
-		int[] sol333 = tomove(sol);
+		int len333 = sol333.length;
 		for (int i=0; i<sol333.length; i++) {
 			solcube.move(sol333[i]);
 		}
 
-		solution = solcube.getMoveString(inverse_solution, with_rotation);
-
-		totlen = length1 + length2 + length + len333;
+		totlen = solcube.length1 + solcube.length2 + solcube.length3 + len333;
+		return solcube.getMoveString(inverse_solution, with_rotation);
 	}
 
 	public void calc(FullCube s) {
@@ -267,7 +525,7 @@ public class Search {
 			}
 			for (int power=0; power<3; power++) {
 				int m = axis + power;
-				int ctx = ctsmv[ct][symmove[sym][m]];
+				int ctx = ctsmv[ct * 36 + symmove[sym][m]];
 				int prun = csprun[ctx>>>6];
 				if (prun >= maxl) {
 					if (prun > maxl) {
@@ -324,21 +582,238 @@ public class Search {
 		c1.sym = sym;
 		p1SolsCnt++;
 
-		FullCube next;
-		if (p1sols.size() < PHASE2_ATTEMPTS) {
-			next = new FullCube(c1);
+		int next;
+		if (p1Size < profile.phase2Attempts) {
+			next = p1Size;
+			savePhase1(next);
 		} else {
-			next = p1sols.poll();
-			if (next.value > c1.value) {
-				next.copy(c1);
+			next = pollPhase1();
+			if (p1Value[next] > c1.value) {
+				savePhase1(next);
 			}
 		}
-		p1sols.add(next);
+		offerPhase1(next);
+
+		return p1SolsCnt == profile.phase1Solutions;
+	}
+
+	void savePhase1(int sol) {
+		int len = add1 ? length1 + 2 : length1;
+		if (len > P1_MOVES || c1.value < 0 || c1.value + 1 >= p1Count.length) {
+			throw new IllegalStateException("Phase 1 solution of " + len + " moves and value " + c1.value + " does not fit");
+		}
+		p1Value[sol] = c1.value;
+		p1Length1[sol] = length1;
+		p1Add1[sol] = add1;
+		p1Sym[sol] = c1.sym;
+		for (int i=0; i<len; i++) {
+			p1Moves[sol * P1_MOVES + i] = (byte) move1[i];
+		}
+	}
 
-		return p1SolsCnt == PHASE1_SOLUTIONS;
+	/**
+	 * Rebuilds the cube of the phase 1 solution sol in c1.
+	 */
+	void loadPhase1(int sol) {
+		c1.copy(c);
+		int len = p1Add1[sol] ? p1Length1[sol] + 2 : p1Length1[sol];
+		for (int i=0; i<len; i++) {
+			c1.move(p1Moves[sol * P1_MOVES + i]);
+		}
+		c1.value = p1Value[sol];
+		c1.length1 = p1Length1[sol];
+		c1.add1 = p1Add1[sol];
+		c1.sym = p1Sym[sol];
+	}
+
+	/**
+	 * The heap is ordered exactly as PriorityQueue would order it, so the solutions are tried in the same order.
+	 */
+	void offerPhase1(int sol) {
+		if (p1Size == p1Heap.length) {
+			throw new IllegalStateException("Phase 1 heap is full");
+		}
+		int k = p1Size++;
+		int value = p1Value[sol];
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			int e = p1Heap[parent];
+			if (value <= p1Value[e]) {
+				break;
+			}
+			p1Heap[k] = e;
+			k = parent;
+		}
+		p1Heap[k] = sol;
+	}
+
+	int pollPhase1() {
+		if (p1Size == 0) {
+			throw new IllegalStateException("Phase 1 heap is empty");
+		}
+		int result = p1Heap[0];
+		int n = --p1Size;
+		int x = p1Heap[n];
+		int value = p1Value[x];
+		int k = 0;
+		int half = n >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int right = child + 1;
+			if (right < n && p1Value[p1Heap[child]] < p1Value[p1Heap[right]]) {
+				child = right;
+			}
+			if (value >= p1Value[p1Heap[child]]) {
+				break;
+			}
+			p1Heap[k] = p1Heap[child];
+			k = child;
+		}
+		if (n > 0) {
+			p1Heap[k] = x;
+		}
+		return result;
+	}
+
+	/**
+	 * Fills p1Order with the solutions sorted by value, ties in heap order. savePhase1(...) makes sure the values
+	 * fit in p1Count.
+	 */
+	void sortPhase1() {
+		Arrays.fill(p1Count, 0);
+		for (int i=0; i<p1Size; i++) {
+			p1Count[p1Value[p1Heap[i]] + 1]++;
+		}
+		for (int i=1; i<p1Count.length; i++) {
+			p1Count[i] += p1Count[i-1];
+		}
+		for (int i=0; i<p1Size; i++) {
+			int sol = p1Heap[i];
+			p1Order[p1Count[p1Value[sol]]++] = sol;
+		}
+	}
+
+	/**
+	 * Finds which candidates of the bound length12 have phase 2 solutions, in parallel, and then searches these ones
+	 * again in order, so arr2 is filled exactly as the sequential search would fill it.
+	 */
+	boolean phase2Parallel(int length12, int maxLength2) {
+		int cnt = 0;
+		while (cnt < p1Size && p1Value[p1Order[cnt]] <= length12) {
+			cnt++;
+		}
+		Arrays.fill(p2Counts, 0, cnt, -1);
+		p2Done = 0;
+		p2Found = 0;
+		stopTask = cnt;
+		runWorkers(2, length12, maxLength2, arr2idx);
+		for (int i=0, end=stopTask; i<end; i++) {
+			if (p2Counts[i] == 0) {
+				continue;
+			}
+			int sol = p1Order[i];
+			loadPhase1(sol);
+			ct2.set(c1.getCenter(), c1.getEdge().getParity());
+			length1 = p1Length1[sol];
+			length2 = length12 - p1Length1[sol];
+			if (search2(ct2.getct(), ct2.getrl(), length2, 28, 0)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the first candidate of the bound length123 with a phase 3 solution, which is left in bestMove3, or -1.
+	 */
+	int phase3Parallel(int length123, int maxLength3) {
+		int cnt = 0;
+		while (cnt < Math.min(arr2idx, profile.phase3Attempts) && arr2[cnt].value <= length123) {
+			cnt++;
+		}
+		stopTask = cnt;
+		runWorkers(3, length123, maxLength3, 0);
+		return stopTask < cnt ? stopTask : -1;
+	}
+
+	void runWorkers(int phase, int bound, int maxLength, int start) {
+		nextTask.set(0);
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers.length];
+		for (int i=0; i<workers.length; i++) {
+			Search worker = workers[i];
+			tasks[i] = ForkJoinPool.commonPool().submit(() -> worker.work(phase, bound, maxLength, start));
+		}
+		for (ForkJoinTask<?> t : tasks) {
+			t.join();
+		}
+	}
+
+	/**
+	 * Run by the workers, which take the candidates of the owner in order until there is none left or needed.
+	 */
+	void work(int phase, int bound, int maxLength, int start) {
+		Search o = owner;
+		c = o.c;
+		int i;
+		while ((i = o.nextTask.getAndIncrement()) < o.stopTask) {
+			task = i;
+			if (phase == 2) {
+				int sol = p1Order[i];
+				int found = 0;
+				if (bound - p1Length1[sol] <= maxLength) {
+					loadPhase1(sol);
+					ct2.set(c1.getCenter(), c1.getEdge().getParity());
+					length1 = p1Length1[sol];
+					length2 = bound - p1Length1[sol];
+					arr2idx = start;
+					search2(ct2.getct(), ct2.getrl(), length2, 28, 0);
+					found = arr2idx - start;
+				}
+				o.finish2(i, found, profile.phase2Solutions - start);
+			} else {
+				FullCube cand = o.arr2[i];
+				int maxl = bound - cand.length1 - cand.length2;
+				if (maxl > maxLength) {
+					continue;
+				}
+				c2.copy(cand);
+				int eparity = e12.set(c2.getEdge());
+				ct3.set(c2.getCenter(), eparity ^ c2.getCorner().getParity());
+				int ct = ct3.getct();
+				int edge = e12.get(10);
+				int prun = Edge3.getprun(e12.getsym());
+				if (prun <= maxl && search3(edge, ct, prun, maxl, 20, 0)) {
+					o.finish3(i, move3);
+				}
+			}
+		}
+	}
+
+	synchronized void finish2(int i, int found, int needed) {
+		if (i >= stopTask) {
+			return;
+		}
+		p2Counts[i] = found;
+		while (p2Done < stopTask && p2Counts[p2Done] >= 0) {
+			p2Found += p2Counts[p2Done++];
+			if (p2Found >= needed) {
+				stopTask = p2Done;
+			}
+		}
+	}
+
+	synchronized void finish3(int i, int[] moves) {
+		if (i >= stopTask) {
+			return;
+		}
+		System.arraycopy(moves, 0, bestMove3, 0, bestMove3.length);
+		stopTask = i;
 	}
 
 	boolean search2(int ct, int rl, int maxl, int lm, int depth) {
+		if (owner != null && task >= owner.stopTask) {
+			return true;
+		}
 		if (ct==0 && ctprun[rl] == 0 && maxl == 0) {
 			return maxl == 0 && init3();
 		}
@@ -347,7 +822,7 @@ public class Search {
 				m = skipAxis2[m];
 				continue;
 			}
-			int ctx = ctmv[ct][m];
+			int ctx = ctmv[ct * 28 + m];
 			int rlx = rlmv[rl][m];
 
 			int prun = ctprun[ctx * 70 + rlx];
@@ -393,6 +868,9 @@ public class Search {
 	}
 
 	public boolean search3(int edge, int ct, int prun, int maxl, int lm, int depth) {
+		if (owner != null && task >= owner.stopTask) {
+			return true;
+		}
 		if (maxl == 0) {
 			return edge == 0 && ct == 0;
 		}
@@ -402,7 +880,7 @@ public class Search {
 				m = skipAxis3[m];
 				continue;
 			}
-			int ctx = Center3.ctmove[ct][m];
+			int ctx = Center3.ctmove[ct * 20 + m];
 			int prun1 = Center3.prun[ctx];
 			if (prun1 >= maxl) {
 				if (prun1 > maxl && m < 14) {
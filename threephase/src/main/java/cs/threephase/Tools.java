@@ -16,22 +16,6 @@ public class Tools {
 		}
 	}
 
-	private static void read(int[][] arr, DataInput in) throws IOException {
-		for (int i=0, leng=arr.length; i<leng; i++) {
-			for (int j=0, len=arr[i].length; j<len; j++) {
-				arr[i][j] = in.readInt();
-			}
-		}
-	}
-
-	private static void write(int[][] arr, DataOutput out) throws IOException {
-		for (int i=0, leng=arr.length; i<leng; i++) {
-			for (int j=0, len=arr[i].length; j<len; j++) {
-				out.writeInt(arr[i][j]);
-			}
-		}
-	}
-
 	static Random r = new Random();
 
 	public static String randomCube() {
@@ -56,6 +40,7 @@ public class Tools {
 
 		Center1.initSym();
 		Center1.initSym2Raw();
+		Center1.ctsmv = new int[15582 * 36];
 		read(Center1.ctsmv, in);
 		Center1.createPrun();
 
@@ -65,8 +50,9 @@ public class Tools {
 
 		Edge3.initMvrot();
 		Edge3.initRaw2Sym();
+		Edge3.eprun = new int[Edge3.N_EPRUN / 16];
 		read(Edge3.eprun, in);
-		Edge3.done = Edge3.N_EPRUN;
+		Edge3.done.set(Edge3.prunValues[Edge3.MAX_DEPTH - 1]);
 
 		Search.inited = true;
 	}